@@ -0,0 +1,84 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate6.benchmarks;
+
+import io.github.jleblanc64.hibernate6.benchmarks.entity.VavrCustomer;
+import io.github.jleblanc64.hibernate6.benchmarks.entity.VavrOrder;
+import io.github.jleblanc64.hibernate6.hibernate.StatelessBulk;
+import io.vavr.collection.List;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows inserted per second, Vavr aggregates through a stateful session versus StatelessBulk.
+ * <p>
+ * One invocation inserts CUSTOMERS customers with their orders, JDBC batches of 50.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BulkInsertBenchmark {
+    private static final int CUSTOMERS = 1000;
+    private static final int ORDERS = 10;
+    private static final int ROWS = CUSTOMERS * (1 + ORDERS);
+
+    @Param({"stateful", "stateless"})
+    String path;
+
+    SessionFactory sessionFactory;
+
+    @Setup
+    public void setup() {
+        H2.override();
+        sessionFactory = H2.sessionFactory("bulk", VavrCustomer.class, VavrOrder.class);
+    }
+
+    @TearDown(Level.Iteration)
+    public void truncate() {
+        sessionFactory.getSchemaManager().truncateMappedObjects();
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void insert() {
+        var customers = List.range(0, CUSTOMERS).map(i -> HibernateBenchmark.vavrCustomer(ORDERS));
+        if (path.equals("stateless")) {
+            sessionFactory.inStatelessTransaction(session -> StatelessBulk.insert(session, customers));
+            return;
+        }
+
+        sessionFactory.inTransaction(session -> {
+            var i = 0;
+            for (var customer : customers) {
+                session.persist(customer);
+                if (++i % 50 == 0) {
+                    session.flush();
+                    session.clear();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate6.benchmarks;
+
+import io.github.jleblanc64.hibernate6.benchmarks.entity.VavrCustomer;
+import io.github.jleblanc64.hibernate6.benchmarks.entity.VavrOrder;
+import io.github.jleblanc64.hibernate6.hibernate.ParallelExport;
+import io.github.jleblanc64.hibernate6.hibernate.StatelessBulk;
+import io.vavr.collection.List;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregates exported per second by ParallelExport, for a growing number of partitions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ExportBenchmark {
+    private static final int CUSTOMERS = 10_000;
+
+    @Param({"1", "2", "4", "8"})
+    int partitions;
+
+    SessionFactory sessionFactory;
+
+    @Setup
+    public void setup() {
+        H2.override();
+        sessionFactory = H2.sessionFactory("export", VavrCustomer.class, VavrOrder.class);
+        var customers = List.range(0, CUSTOMERS).map(i -> HibernateBenchmark.vavrCustomer(10));
+        sessionFactory.inStatelessTransaction(session -> StatelessBulk.insert(session, customers));
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CUSTOMERS)
+    public void export(Blackhole bh) {
+        ParallelExport.export(sessionFactory, VavrCustomer.class, partitions, 500, bh::consume);
+    }
+}
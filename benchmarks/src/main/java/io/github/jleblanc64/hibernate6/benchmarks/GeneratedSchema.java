@@ -0,0 +1,75 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate6.benchmarks;
+
+import io.vavr.control.Option;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.OneToMany;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.description.annotation.AnnotationDescription;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.description.type.TypeDefinition;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.TargetType;
+import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Entity classes generated at runtime, each with an id, a name and a one-to-many list of its own type:
+ * Option and Vavr List, or String and java.util.List.
+ * <p>
+ * Defined in this package and class loader, so that Class.forName finds them like application entities.
+ */
+public class GeneratedSchema {
+    public static List<Class<?>> entities(int count, boolean vavr) {
+        var lookup = MethodHandles.lookup();
+        var entities = new ArrayList<Class<?>>(count);
+        for (var i = 0; i < count; i++)
+            entities.add(entity(entityName(i, vavr), vavr, lookup));
+
+        return entities;
+    }
+
+    public static String entityName(int i, boolean vavr) {
+        return (vavr ? "GeneratedVavr" : "GeneratedPlain") + i;
+    }
+
+    private static Class<?> entity(String name, boolean vavr, MethodHandles.Lookup lookup) {
+        TypeDefinition nameType = vavr ? TypeDescription.Generic.Builder.parameterizedType(Option.class, String.class).build()
+                : TypeDescription.ForLoadedType.of(String.class);
+        var listType = TypeDescription.ForLoadedType.of(vavr ? io.vavr.collection.List.class : List.class);
+        var childrenType = TypeDescription.Generic.Builder.parameterizedType(listType, TargetType.DESCRIPTION).build();
+
+        return new ByteBuddy()
+                .subclass(Object.class)
+                .name(GeneratedSchema.class.getPackageName() + "." + name)
+                .annotateType(AnnotationDescription.Builder.ofType(Entity.class).build())
+                .defineField("id", Long.class, Visibility.PRIVATE)
+                .annotateField(AnnotationDescription.Builder.ofType(Id.class).build())
+                .defineField("name", nameType, Visibility.PRIVATE)
+                .defineField("children", childrenType, Visibility.PRIVATE)
+                .annotateField(AnnotationDescription.Builder.ofType(OneToMany.class).build(),
+                        AnnotationDescription.Builder.ofType(JoinColumn.class).define("name", "parent_id").build())
+                .make()
+                .load(GeneratedSchema.class.getClassLoader(), ClassLoadingStrategy.UsingLookup.of(lookup))
+                .getLoaded();
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate6.benchmarks;
+
+import io.github.jleblanc64.hibernate6.hibernate.VavrHibernate6;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+
+public class H2 {
+    private static boolean overridden;
+
+    public static synchronized void override() {
+        if (overridden)
+            return;
+
+        VavrHibernate6.override();
+        overridden = true;
+    }
+
+    public static SessionFactory sessionFactory(String db, Class<?>... entities) {
+        return configuration(db, entities).buildSessionFactory();
+    }
+
+    public static Configuration configuration(String db, Class<?>... entities) {
+        var conf = new Configuration();
+        conf.setProperty(AvailableSettings.JAKARTA_JDBC_URL, "jdbc:h2:mem:" + db + ";DB_CLOSE_DELAY=-1");
+        conf.setProperty(AvailableSettings.HBM2DDL_AUTO, "create-drop");
+        conf.setProperty(AvailableSettings.STATEMENT_BATCH_SIZE, "50");
+        conf.setProperty(AvailableSettings.ORDER_INSERTS, "true");
+        for (var entity : entities)
+            conf.addAnnotatedClass(entity);
+
+        return conf;
+    }
+}
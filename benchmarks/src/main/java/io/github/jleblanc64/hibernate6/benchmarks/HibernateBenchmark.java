@@ -0,0 +1,155 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate6.benchmarks;
+
+import io.github.jleblanc64.hibernate6.benchmarks.entity.PlainCustomer;
+import io.github.jleblanc64.hibernate6.benchmarks.entity.PlainOrder;
+import io.github.jleblanc64.hibernate6.benchmarks.entity.VavrCustomer;
+import io.github.jleblanc64.hibernate6.benchmarks.entity.VavrOrder;
+import io.vavr.collection.List;
+import io.vavr.control.Option;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity hydration and flush, Vavr List / Option fields versus plain JPA fields.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class HibernateBenchmark {
+    @Param({"vavr", "plain"})
+    String mapping;
+
+    @Param({"10", "1000"})
+    int orders;
+
+    SessionFactory sessionFactory;
+    Long customerId;
+
+    @Setup
+    public void setup() {
+        H2.override();
+        sessionFactory = H2.sessionFactory("hibernate", VavrCustomer.class, VavrOrder.class, PlainCustomer.class, PlainOrder.class);
+    }
+
+    // persistAndFlush adds a customer per call: every iteration starts from the same single customer
+    @Setup(Level.Iteration)
+    public void truncate() {
+        sessionFactory.inTransaction(session -> {
+            for (var entity : new String[]{"VavrOrder", "VavrCustomer", "PlainOrder", "PlainCustomer"})
+                session.createMutationQuery("delete from " + entity).executeUpdate();
+        });
+        customerId = persist();
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public void load(Blackhole bh) {
+        try (var session = sessionFactory.openSession()) {
+            if (isVavr()) {
+                var customer = session.get(VavrCustomer.class, customerId);
+                bh.consume(customer.getName().getOrNull());
+                customer.getOrders().forEach(o -> bh.consume(o.getLabel().getOrNull()));
+            } else {
+                var customer = session.get(PlainCustomer.class, customerId);
+                bh.consume(customer.getName());
+                customer.getOrders().forEach(o -> bh.consume(o.getLabel()));
+            }
+        }
+    }
+
+    @Benchmark
+    public Long persistAndFlush() {
+        return persist();
+    }
+
+    @Benchmark
+    public void loadModifyAndFlush() {
+        try (var session = sessionFactory.openSession()) {
+            var tx = session.beginTransaction();
+            if (isVavr()) {
+                var customer = session.get(VavrCustomer.class, customerId);
+                customer.setCity(Option.of(customer.getCity().getOrElse("") + "x"));
+                customer.getOrders().size();
+            } else {
+                var customer = session.get(PlainCustomer.class, customerId);
+                customer.setCity(customer.getCity() + "x");
+                customer.getOrders().size();
+            }
+            tx.commit();
+        }
+    }
+
+    private Long persist() {
+        try (var session = sessionFactory.openSession()) {
+            var tx = session.beginTransaction();
+            Long id;
+            if (isVavr()) {
+                var customer = vavrCustomer(orders);
+                session.persist(customer);
+                id = customer.getId();
+            } else {
+                var customer = plainCustomer(orders);
+                session.persist(customer);
+                id = customer.getId();
+            }
+            tx.commit();
+            return id;
+        }
+    }
+
+    private boolean isVavr() {
+        return mapping.equals("vavr");
+    }
+
+    static VavrCustomer vavrCustomer(int orders) {
+        var customer = new VavrCustomer();
+        customer.setName(Option.of("name"));
+        customer.setCity(Option.none());
+        customer.setOrders(List.range(0, orders).map(i -> {
+            var order = new VavrOrder();
+            order.setLabel(Option.of("order " + i));
+            order.setAmount(i);
+            return order;
+        }));
+        return customer;
+    }
+
+    static PlainCustomer plainCustomer(int orders) {
+        var customer = new PlainCustomer();
+        customer.setName("name");
+        customer.setOrders(new ArrayList<>());
+        for (var i = 0; i < orders; i++) {
+            var order = new PlainOrder();
+            order.setLabel("order " + i);
+            order.setAmount(i);
+            customer.getOrders().add(order);
+        }
+        return customer;
+    }
+}
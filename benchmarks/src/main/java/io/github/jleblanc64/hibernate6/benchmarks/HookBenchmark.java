@@ -0,0 +1,69 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate6.benchmarks;
+
+import org.hibernate.property.access.spi.GetterFieldImpl;
+import org.hibernate.property.access.spi.SetterFieldImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per call overhead of the LibCustom hooks on Hibernate runtime paths, for plain (non Vavr) values.
+ * <p>
+ * JMH runs each param value in its own fork, so "false" measures the untouched Hibernate classes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class HookBenchmark {
+    @Param({"false", "true"})
+    boolean hooks;
+
+    Holder holder;
+    GetterFieldImpl getter;
+    SetterFieldImpl setter;
+
+    @Setup
+    public void setup() throws NoSuchFieldException {
+        if (hooks)
+            H2.override();
+
+        holder = new Holder();
+        holder.value = "value";
+        var field = Holder.class.getDeclaredField("value");
+        getter = new GetterFieldImpl(Holder.class, "value", field);
+        setter = new SetterFieldImpl(Holder.class, "value", field);
+    }
+
+    @Benchmark
+    public Object getterGet() {
+        return getter.get(holder);
+    }
+
+    @Benchmark
+    public Object setterSet() {
+        setter.set(holder, "value");
+        return holder;
+    }
+
+    public static class Holder {
+        String value;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate6.benchmarks;
+
+import io.github.jleblanc64.hibernate6.benchmarks.entity.VavrCustomer;
+import io.github.jleblanc64.hibernate6.benchmarks.entity.VavrOrder;
+import io.vavr.collection.List;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IN queries on Vavr List ids of 1 to maxSize elements, with and without hibernate.query.in_clause_parameter_padding.
+ * <p>
+ * The planHits and planMisses counters are the query plan cache hits and misses of the Hibernate statistics, the
+ * sqlTexts counter the distinct SQL texts run during the iteration: the statements the database has to plan.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class InClauseBenchmark {
+    private static final int ORDERS = 1000;
+
+    @Param({"true", "false"})
+    boolean padding;
+
+    @Param({"16", "100"})
+    int maxSize;
+
+    SessionFactory sessionFactory;
+    Statistics statistics;
+    List<Long> ids;
+    String sql;
+    final Random random = new Random(42);
+
+    @Setup
+    public void setup() {
+        H2.override();
+        var conf = H2.configuration("inClause", VavrCustomer.class, VavrOrder.class);
+        conf.setProperty(AvailableSettings.IN_CLAUSE_PARAMETER_PADDING, String.valueOf(padding));
+        conf.setProperty(AvailableSettings.GENERATE_STATISTICS, "true");
+        conf.setStatementInspector(s -> {
+            sql = s;
+            return s;
+        });
+        sessionFactory = conf.buildSessionFactory();
+        statistics = sessionFactory.getStatistics();
+
+        var customer = HibernateBenchmark.vavrCustomer(ORDERS);
+        sessionFactory.inTransaction(session -> session.persist(customer));
+        ids = List.ofAll(customer.getOrders()).map(VavrOrder::getId);
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public int query(Counters counters) {
+        var size = 1 + random.nextInt(maxSize);
+        var sample = ids.drop(random.nextInt(ORDERS - size + 1)).take(size);
+
+        var hits = statistics.getQueryPlanCacheHitCount();
+        var misses = statistics.getQueryPlanCacheMissCount();
+        int found;
+        try (var session = sessionFactory.openSession()) {
+            found = session.createQuery("select o from VavrOrder o where o.id in :ids", VavrOrder.class)
+                    .setParameter("ids", sample).getResultList().size();
+        }
+
+        counters.planHits += statistics.getQueryPlanCacheHitCount() - hits;
+        counters.planMisses += statistics.getQueryPlanCacheMissCount() - misses;
+        if (counters.texts.add(sql))
+            counters.sqlTexts++;
+
+        return found;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+        public long planHits;
+        public long planMisses;
+        public long sqlTexts;
+        final Set<String> texts = new HashSet<>();
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            planHits = 0;
+            planMisses = 0;
+            sqlTexts = 0;
+            texts.clear();
+        }
+    }
+}
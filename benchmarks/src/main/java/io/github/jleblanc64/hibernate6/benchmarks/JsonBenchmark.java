@@ -0,0 +1,104 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate6.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import io.github.jleblanc64.hibernate6.impl.MetaListImpl;
+import io.github.jleblanc64.hibernate6.impl.MetaOptionImpl;
+import io.github.jleblanc64.hibernate6.jackson.deser.ListDeser;
+import io.github.jleblanc64.hibernate6.jackson.deser.OptionModule;
+import io.vavr.collection.List;
+import io.vavr.control.Option;
+import lombok.Data;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON round trips of Vavr fields through ListDeser and OptionSer, versus plain fields.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JsonBenchmark {
+    @Param({"10", "1000"})
+    int size;
+
+    ObjectMapper om;
+    VavrDto vavrDto;
+    PlainDto plainDto;
+    String vavrJson;
+    String plainJson;
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        var metaList = new MetaListImpl();
+        om = new ObjectMapper();
+        om.registerModule(new OptionModule(new MetaOptionImpl()));
+        om.registerModule(new SimpleModule()
+                .addDeserializer(metaList.monadClass(), new ListDeser.Deserializer(metaList))
+                .addSerializer(metaList.monadClass(), new ListDeser.Serializer(metaList)));
+
+        vavrDto = new VavrDto();
+        vavrDto.setName(Option.of("name"));
+        vavrDto.setValues(List.range(0, size));
+
+        plainDto = new PlainDto();
+        plainDto.setName("name");
+        plainDto.setValues(new ArrayList<>(vavrDto.getValues().asJava()));
+
+        vavrJson = om.writeValueAsString(vavrDto);
+        plainJson = om.writeValueAsString(plainDto);
+    }
+
+    @Benchmark
+    public String vavrSerialize() throws JsonProcessingException {
+        return om.writeValueAsString(vavrDto);
+    }
+
+    @Benchmark
+    public VavrDto vavrDeserialize() throws JsonProcessingException {
+        return om.readValue(vavrJson, VavrDto.class);
+    }
+
+    @Benchmark
+    public String plainSerialize() throws JsonProcessingException {
+        return om.writeValueAsString(plainDto);
+    }
+
+    @Benchmark
+    public PlainDto plainDeserialize() throws JsonProcessingException {
+        return om.readValue(plainJson, PlainDto.class);
+    }
+
+    @Data
+    public static class VavrDto {
+        Option<String> name;
+        List<Integer> values;
+    }
+
+    @Data
+    public static class PlainDto {
+        String name;
+        java.util.List<Integer> values;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate6.benchmarks;
+
+import io.github.jleblanc64.hibernate6.hibernate.VavrBagType;
+import io.github.jleblanc64.hibernate6.impl.MetaListImpl;
+import io.github.jleblanc64.hibernate6.impl.PersistentBagImpl;
+import io.vavr.collection.List;
+import org.hibernate.type.BagType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Traversal of an initialized PersistentBagImpl, compared to a Vavr List and an ArrayList.
+ * <p>
+ * Wrapping a new List into a bag at flush, VavrBagType compared to BagType wrapping an ArrayList.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PersistentBagBenchmark {
+    @Param({"10", "1000", "20000"})
+    int size;
+
+    ArrayList<Integer> arrayList;
+    List<Integer> vavrList;
+    PersistentBagImpl bag;
+    BagType bagType;
+    VavrBagType vavrBagType;
+
+    @Setup
+    public void setup() {
+        arrayList = new ArrayList<>();
+        for (var i = 0; i < size; i++)
+            arrayList.add(i);
+
+        vavrList = List.ofAll(arrayList);
+        bag = new PersistentBagImpl(null, new ArrayList<>(arrayList));
+        bagType = new BagType("role", null);
+        vavrBagType = new VavrBagType("role", null, new MetaListImpl());
+    }
+
+    @Benchmark
+    public Object bagTypeWrap() {
+        return bagType.wrap(null, arrayList);
+    }
+
+    @Benchmark
+    public Object vavrBagTypeWrap() {
+        return vavrBagType.wrap(null, vavrList);
+    }
+
+    @Benchmark
+    public void bagIterate(Blackhole bh) {
+        for (var o : bag)
+            bh.consume(o);
+    }
+
+    @Benchmark
+    public void bagGetByIndex(Blackhole bh) {
+        for (var i = 0; i < size; i++)
+            bh.consume(bag.get(i));
+    }
+
+    @Benchmark
+    public Object bagHeadTail() {
+        return bag.tail().head();
+    }
+
+    @Benchmark
+    public Object bagMap() {
+        return bag.map(o -> o);
+    }
+
+    @Benchmark
+    public void vavrListIterate(Blackhole bh) {
+        for (var o : vavrList)
+            bh.consume(o);
+    }
+
+    @Benchmark
+    public void arrayListIterate(Blackhole bh) {
+        for (var o : arrayList)
+            bh.consume(o);
+    }
+}
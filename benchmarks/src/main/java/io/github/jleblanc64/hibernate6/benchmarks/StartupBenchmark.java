@@ -0,0 +1,114 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate6.benchmarks;
+
+import io.github.jleblanc64.hibernate6.hibernate.VavrHibernate6;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold start, each measurement in a fresh JVM: VavrHibernate6.override(), SessionFactory build and first query,
+ * for a generated schema of Vavr entities versus the same schema with plain JPA types.
+ * <p>
+ * Add {@code -prof io.github.jleblanc64.hibernate6.benchmarks.MetaspaceProfiler} for the metaspace used and
+ * classes loaded at the end of each measurement.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(5)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+public class StartupBenchmark {
+    @State(Scope.Benchmark)
+    public static class Schema {
+        @Param({"100", "1000", "5000"})
+        int entities;
+
+        // plain: no hooks installed, baseline Hibernate
+        @Param({"vavr", "plain"})
+        String types;
+
+        List<Class<?>> classes;
+        SessionFactory sessionFactory;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            var vavr = types.equals("vavr");
+            if (vavr)
+                H2.override();
+
+            classes = GeneratedSchema.entities(entities, vavr);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            if (sessionFactory != null)
+                sessionFactory.close();
+        }
+
+        boolean vavr() {
+            return types.equals("vavr");
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Booted {
+        SessionFactory sessionFactory;
+        String query;
+
+        @Setup(Level.Trial)
+        public void setup(Schema schema) {
+            var entity = GeneratedSchema.entityName(0, schema.vavr());
+            sessionFactory = H2.sessionFactory("startupQuery", schema.classes.toArray(Class<?>[]::new));
+            sessionFactory.inTransaction(session -> session.doWork(connection -> {
+                try (var statement = connection.createStatement()) {
+                    statement.executeUpdate("insert into " + entity + " (id, name, parent_id) values (1, 'a', null), (2, 'b', 1), (3, 'c', 1)");
+                }
+            }));
+            query = "from " + entity + " e left join fetch e.children where e.id = 1";
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            sessionFactory.close();
+        }
+    }
+
+    @Benchmark
+    public void override() {
+        VavrHibernate6.override();
+    }
+
+    /**
+     * Without schema export, which would dominate with thousands of tables.
+     */
+    @Benchmark
+    public SessionFactory sessionFactory(Schema schema) {
+        var conf = H2.configuration("startup", schema.classes.toArray(Class<?>[]::new));
+        conf.setProperty(AvailableSettings.HBM2DDL_AUTO, "none");
+        schema.sessionFactory = conf.buildSessionFactory();
+        return schema.sessionFactory;
+    }
+
+    @Benchmark
+    public Object firstQuery(Booted booted) {
+        return booted.sessionFactory.fromTransaction(session -> session.createSelectionQuery(booted.query, Object.class).getSingleResult());
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate6.hibernate;
+
+import io.github.jleblanc64.libcustom.LibCustom;
+import org.hibernate.boot.model.process.spi.ManagedResources;
+import org.hibernate.boot.model.process.spi.MetadataBuildingProcess;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.boot.spi.MetadataBuildingOptions;
+import org.hibernate.metamodel.model.domain.internal.MappingMetamodelImpl;
+import org.hibernate.metamodel.spi.RuntimeModelCreationContext;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the metadata and runtime metamodel builds in progress.
+ * <p>
+ * Hooks only needed to build the metamodel check isActive() first and let the original call through
+ * otherwise, so they cost a single volatile read once the SessionFactory is built.
+ */
+public class BootstrapPhase {
+    private static final AtomicInteger BUILDS = new AtomicInteger();
+    // set while a scope calls the original method, whose hook then lets it through
+    private static final ThreadLocal<Boolean> CALLING_ORIGINAL = new ThreadLocal<>();
+
+    interface Build {
+        Object run(Object[] args);
+    }
+
+    static void override() {
+        scope(MetadataBuildingProcess.class, "complete", args ->
+                MetadataBuildingProcess.complete((ManagedResources) args[0], (BootstrapContext) args[1], (MetadataBuildingOptions) args[2]));
+
+        // the domain model of the creation context is the MappingMetamodelImpl being initialized
+        scope(MappingMetamodelImpl.class, "finishInitialization", args -> {
+            var context = (RuntimeModelCreationContext) args[0];
+            ((MappingMetamodelImpl) context.getDomainModel()).finishInitialization(context);
+            return null;
+        });
+    }
+
+    private static void scope(Class<?> clazz, String method, Build build) {
+        LibCustom.override(clazz, method, args -> {
+            if (CALLING_ORIGINAL.get() != null) {
+                CALLING_ORIGINAL.remove();
+                return LibCustom.ORIGINAL;
+            }
+
+            BUILDS.incrementAndGet();
+            try {
+                CALLING_ORIGINAL.set(Boolean.TRUE);
+                return build.run(args);
+            } finally {
+                CALLING_ORIGINAL.remove();
+                BUILDS.decrementAndGet();
+            }
+        });
+    }
+
+    public static boolean isActive() {
+        return BUILDS.get() > 0;
+    }
+}
@@ -0,0 +1,400 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate6.hibernate;
+
+import io.github.jleblanc64.hibernate6.jfr.HookEvent;
+import io.github.jleblanc64.hibernate6.meta.MetaLazy;
+import io.github.jleblanc64.libcustom.LibCustom;
+import org.hibernate.FlushMode;
+import org.hibernate.LazyInitializationException;
+import org.hibernate.MappingException;
+import org.hibernate.QueryException;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.bytecode.enhance.spi.LazyPropertyInitializer;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.ClearEvent;
+import org.hibernate.event.spi.ClearEventListener;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.EvictEvent;
+import org.hibernate.event.spi.EvictEventListener;
+import org.hibernate.event.spi.PostLoadEvent;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.mapping.BasicValue;
+import org.hibernate.mapping.PersistentClass;
+import org.hibernate.metamodel.mapping.AttributeMapping;
+import org.hibernate.metamodel.mapping.BasicEntityIdentifierMapping;
+import org.hibernate.metamodel.mapping.BasicValuedModelPart;
+import org.hibernate.metamodel.model.domain.EntityDomainType;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.query.sqm.sql.SqmToSqlAstConverter;
+import org.hibernate.query.sqm.sql.internal.BasicValuedPathInterpretation;
+import org.hibernate.query.sqm.tree.domain.SqmBasicValuedSimplePath;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.sql.results.graph.entity.internal.EntityInitializerImpl;
+import org.hibernate.type.BasicType;
+
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Vavr Lazy attributes of an entity are deferred: its selects read null instead of their column, and the column is
+ * loaded by a single column select on the first {@code get()}, without bytecode enhancement.
+ * <p>
+ * With {@code hibernate.vavr.deferred_batch_size=<size>}, that select also loads the column for up to size - 1 other
+ * entities of the session still waiting for it.
+ * <p>
+ * Until loaded, the attribute is skipped by dirty checking. Entities with deferred attributes use dynamic updates, so
+ * an update never writes a column it did not load.
+ * <p>
+ * A StatelessSession, and so ParallelExport, does not load deferred attributes: their {@code get()} throws. Queries
+ * cannot reference them either, select their column with a native query instead.
+ */
+public class DeferredAttributes implements Integrator {
+    public static final String BATCH_SIZE = "hibernate.vavr.deferred_batch_size";
+    // session property holding the Pending of the session
+    private static final String PENDING = DeferredAttributes.class.getName();
+    // entity name -> names of its deferred attributes, by factory
+    private static final Map<SessionFactoryImplementor, Map<String, List<String>>> DEFERRED = new ConcurrentHashMap<>();
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext, SessionFactoryImplementor sessionFactory) {
+        var metaLazy = VavrBindings.metaLazy();
+        // entity name -> names of its deferred attributes
+        var deferred = new HashMap<String, List<String>>();
+        for (var persistentClass : metadata.getEntityBindings()) {
+            var names = new ArrayList<String>();
+            for (var property : persistentClass.getPropertyClosure()) {
+                var field = field(persistentClass.getMappedClass(), property.getName());
+                if (field == null || !metaLazy.isSuperClassOf(field.getType()))
+                    continue;
+
+                var role = persistentClass.getEntityName() + "." + property.getName();
+                if (!(property.getValue() instanceof BasicValue) || property.getValue().getTable() != persistentClass.getRootTable()
+                        || persistentClass.getIdentifier().getColumnSpan() != 1)
+                    throw new MappingException("Lazy attributes must be basic attributes of the root table of an entity with a single column id: " + role);
+
+                property.getValue().getColumns().forEach(column -> column.setCustomRead("null"));
+                names.add(property.getName());
+            }
+
+            if (!names.isEmpty()) {
+                persistentClass.setDynamicUpdate(true);
+                deferred.put(persistentClass.getEntityName(), names);
+            }
+        }
+
+        if (deferred.isEmpty())
+            return;
+
+        DEFERRED.put(sessionFactory, deferred);
+        var batchSize = Math.max(1, ConfigurationHelper.getInt(BATCH_SIZE, sessionFactory.getProperties(), 1));
+        var listener = new Listener(deferred, batchSize);
+        var registry = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_LOAD, listener);
+        registry.appendListeners(EventType.CLEAR, listener);
+        // before the entity entry is removed
+        registry.prependListeners(EventType.EVICT, listener);
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        DEFERRED.remove(sessionFactory);
+    }
+
+    static void overrideCustom(MetaLazy metaLazy) {
+        // the post load listener only runs for a Session: entities loaded by a StatelessSession get a Lazy that throws,
+        // instead of the null read for their column
+        LibCustom.modifyArg(EntityInitializerImpl.class, "preLoad", 1, args -> HookEvent.record("EntityInitializerImpl.preLoad", () -> {
+            var data = (EntityInitializerImpl.EntityInitializerData) args[0];
+            var session = data.getRowProcessingState().getSession();
+            if (DEFERRED.isEmpty() || session.isEventSource())
+                return LibCustom.ORIGINAL;
+
+            var persister = session.getEntityPersister(null, data.getInstance());
+            var names = DEFERRED.getOrDefault(session.getFactory(), Map.of()).get(persister.getEntityName());
+            if (names == null)
+                return LibCustom.ORIGINAL;
+
+            var state = (Object[]) args[1];
+            for (var name : names) {
+                var attribute = persister.findAttributeMapping(name);
+                state[attribute.getStateArrayPosition()] = metaLazy.fromSupplier(new Unloaded(attribute.getNavigableRole().getFullPath()));
+            }
+
+            return state;
+        }));
+
+        // their column reads null
+        LibCustom.modifyArg(BasicValuedPathInterpretation.class, "from", 0, args -> HookEvent.record("BasicValuedPathInterpretation.from", () -> {
+            if (DEFERRED.isEmpty())
+                return LibCustom.ORIGINAL;
+
+            var path = (SqmBasicValuedSimplePath<?>) args[0];
+            var factory = ((SqmToSqlAstConverter) args[1]).getCreationContext().getSessionFactory();
+            var type = path.getLhs().getReferencedPathSource().getSqmPathType();
+            if (!(type instanceof EntityDomainType))
+                return LibCustom.ORIGINAL;
+
+            var entityName = ((EntityDomainType<?>) type).getHibernateEntityName();
+            var names = DEFERRED.getOrDefault(factory, Map.of()).get(entityName);
+            var name = path.getReferencedPathSource().getPathName();
+            if (names != null && names.contains(name))
+                throw new QueryException("Deferred attribute " + entityName + "." + name + " cannot be queried, select its column with a native query");
+
+            return LibCustom.ORIGINAL;
+        }));
+    }
+
+    static boolean isUnfetched(MetaLazy metaLazy, Object lazy) {
+        return metaLazy.pendingSupplier(lazy) instanceof Load;
+    }
+
+    private static Field field(Class<?> clazz, String name) {
+        for (var current = clazz; current != null; current = current.getSuperclass())
+            try {
+                return current.getDeclaredField(name);
+            } catch (NoSuchFieldException e) {
+                // declared by a superclass
+            }
+
+        return null;
+    }
+
+    // detached entities leave the batches of the session
+    private static class Listener implements PostLoadEventListener, ClearEventListener, EvictEventListener {
+        private final Map<String, List<String>> deferred;
+        private final int batchSize;
+
+        Listener(Map<String, List<String>> deferred, int batchSize) {
+            this.deferred = deferred;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public void onPostLoad(PostLoadEvent event) {
+            var persister = event.getPersister();
+            var names = deferred.get(persister.getEntityName());
+            if (names == null)
+                return;
+
+            var entity = event.getEntity();
+            var session = event.getSession();
+            var entry = session.getPersistenceContextInternal().getEntry(entity);
+            for (var name : names) {
+                var attribute = persister.findAttributeMapping(name);
+                if (entry != null && entry.getLoadedState() != null)
+                    entry.getLoadedState()[attribute.getStateArrayPosition()] = LazyPropertyInitializer.UNFETCHED_PROPERTY;
+
+                var load = new Load(session, entity, event.getId(), attribute, batchSize);
+                Pending.of(session).add(load.role, event.getId());
+                attribute.getPropertyAccess().getSetter().set(entity, VavrBindings.metaLazy().fromSupplier(load));
+            }
+        }
+
+        @Override
+        public void onClear(ClearEvent event) {
+            var pending = Pending.find(event.getSession());
+            if (pending != null)
+                pending.clear();
+        }
+
+        @Override
+        public void onEvict(EvictEvent event) {
+            var session = event.getSession();
+            var pending = Pending.find(session);
+            if (pending == null)
+                return;
+
+            var entity = event.getObject();
+            var lazyInitializer = HibernateProxy.extractLazyInitializer(entity);
+            if (lazyInitializer != null) {
+                if (lazyInitializer.isUninitialized())
+                    return;
+
+                entity = lazyInitializer.getImplementation();
+            }
+
+            var entry = session.getPersistenceContextInternal().getEntry(entity);
+            var names = entry == null ? null : deferred.get(entry.getPersister().getEntityName());
+            if (names == null)
+                return;
+
+            for (var name : names)
+                pending.remove(entry.getPersister().findAttributeMapping(name).getNavigableRole().getFullPath(), entry.getId());
+        }
+    }
+
+    private static class Load implements Supplier<Object> {
+        // a detached entity does not keep its session alive
+        private final WeakReference<SessionImplementor> session;
+        private final Object entity;
+        private final Object id;
+        private final AttributeMapping attribute;
+        private final String role;
+        private final int batchSize;
+
+        Load(SessionImplementor session, Object entity, Object id, AttributeMapping attribute, int batchSize) {
+            this.session = new WeakReference<>(session);
+            this.entity = entity;
+            this.id = id;
+            this.attribute = attribute;
+            this.role = attribute.getNavigableRole().getFullPath();
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public Object get() {
+            var session = this.session.get();
+            var entry = session != null && session.isOpen() ? session.getPersistenceContextInternal().getEntry(entity) : null;
+            if (entry == null)
+                throw new LazyInitializationException("Could not load deferred attribute " + role + ": no session, or entity detached");
+
+            var pending = Pending.of(session);
+            if (!pending.isLoaded(role, id))
+                pending.loaded(role, select(session, pending.next(role, id, batchSize)));
+
+            var value = pending.take(role, id);
+            // compared by the next dirty checks
+            if (entry.getLoadedState() != null)
+                entry.getLoadedState()[attribute.getStateArrayPosition()] = attribute.getAttributeMetadata().getMutabilityPlan().deepCopy(value);
+
+            return value;
+        }
+
+        private Map<Object, Object> select(SessionImplementor session, Set<Object> ids) {
+            var idMapping = (BasicEntityIdentifierMapping) attribute.findContainingEntityMapping().getIdentifierMapping();
+            var column = (BasicValuedModelPart) attribute;
+            var sql = "select " + idMapping.getSelectionExpression() + " as deferred_id, " + column.getSelectionExpression() + " as deferred_value"
+                    + " from " + column.getContainingTableExpression() + " where " + idMapping.getSelectionExpression() + " in (:ids)";
+
+            // a deferred load never flushes
+            List<Object[]> rows = session.createNativeQuery(sql, Object[].class)
+                    .addScalar("deferred_id", (BasicType<?>) idMapping.getJdbcMapping())
+                    .addScalar("deferred_value", (BasicType<?>) column.getJdbcMapping())
+                    .setParameterList("ids", ids)
+                    .setHibernateFlushMode(FlushMode.MANUAL)
+                    .getResultList();
+
+            var values = new HashMap<>();
+            ids.forEach(id -> values.put(id, null));
+            rows.forEach(row -> values.put(row[0], row[1]));
+            return values;
+        }
+    }
+
+    private static class Unloaded implements Supplier<Object> {
+        private final String role;
+
+        Unloaded(String role) {
+            this.role = role;
+        }
+
+        @Override
+        public Object get() {
+            throw new LazyInitializationException("Deferred attribute " + role + " is not loaded by a StatelessSession, load the entity with a Session");
+        }
+    }
+
+    /**
+     * Ids of the entities of a session whose deferred attribute is not loaded yet, and the values loaded along with
+     * another entity of a batch.
+     */
+    private static class Pending implements Serializable {
+        private final Map<String, Set<Object>> waiting = new HashMap<>();
+        private final Map<String, Map<Object, Object>> loaded = new HashMap<>();
+
+        static Pending find(SessionImplementor session) {
+            return (Pending) session.getProperties().get(PENDING);
+        }
+
+        static Pending of(SessionImplementor session) {
+            var pending = find(session);
+            if (pending == null) {
+                pending = new Pending();
+                session.setProperty(PENDING, pending);
+            }
+
+            return pending;
+        }
+
+        void add(String role, Object id) {
+            waiting.computeIfAbsent(role, r -> new LinkedHashSet<>()).add(id);
+            var values = loaded.get(role);
+            // reloaded, e.g. by a refresh
+            if (values != null)
+                values.remove(id);
+        }
+
+        boolean isLoaded(String role, Object id) {
+            var values = loaded.get(role);
+            return values != null && values.containsKey(id);
+        }
+
+        /**
+         * @return id, then up to size - 1 other waiting ids
+         */
+        Set<Object> next(String role, Object id, int size) {
+            var ids = new LinkedHashSet<>();
+            ids.add(id);
+            for (var waitingId : waiting.getOrDefault(role, Set.of())) {
+                if (ids.size() >= size)
+                    break;
+
+                ids.add(waitingId);
+            }
+
+            return ids;
+        }
+
+        void loaded(String role, Map<Object, Object> values) {
+            waiting.getOrDefault(role, new LinkedHashSet<>()).removeAll(values.keySet());
+            loaded.computeIfAbsent(role, r -> new HashMap<>()).putAll(values);
+        }
+
+        Object take(String role, Object id) {
+            return loaded.get(role).remove(id);
+        }
+
+        void remove(String role, Object id) {
+            var ids = waiting.get(role);
+            if (ids != null)
+                ids.remove(id);
+
+            var values = loaded.get(role);
+            if (values != null)
+                values.remove(id);
+        }
+
+        void clear() {
+            waiting.clear();
+            loaded.clear();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate6.hibernate;
+
+import io.github.jleblanc64.hibernate6.meta.Unloaded;
+import org.hibernate.Hibernate;
+import org.hibernate.collection.spi.AbstractPersistentCollection;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static io.github.jleblanc64.hibernate6.hibernate.Utils.isEmbeddable;
+import static io.github.jleblanc64.hibernate6.hibernate.Utils.isEntity;
+
+/**
+ * Replaces the bags of detached entities by values that are safe to share between threads and cheap to serialize:
+ * the plain immutable collection of {@link io.github.jleblanc64.hibernate6.meta.BagProvider#ofReadOnly} when
+ * loaded, an {@link Unloaded} marker otherwise.
+ * <p>
+ * Explicit with {@link #materialize}, or automatic on session close, clear and evict with
+ * {@code hibernate.vavr.materialize_on_detach=true}.
+ */
+public class DetachedGraph implements Integrator {
+    public static final String SETTING = "hibernate.vavr.materialize_on_detach";
+    // factories with the setting on, resolved once when built
+    private static final Set<SessionFactoryImplementor> ENABLED = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext, SessionFactoryImplementor sessionFactory) {
+        if (ConfigurationHelper.getBoolean(SETTING, sessionFactory.getProperties()))
+            ENABLED.add(sessionFactory);
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        ENABLED.remove(sessionFactory);
+    }
+
+    /**
+     * Materializes the Vavr List attributes of root and of the entities and embeddables reachable from it.
+     *
+     * @throws IllegalStateException if a reached bag still belongs to an open session
+     */
+    public static <T> T materialize(T root) {
+        materialize(root, Collections.newSetFromMap(new IdentityHashMap<>()));
+        return root;
+    }
+
+    /**
+     * @return false for Unloaded markers, uninitialized bags and proxies, and Options of an uninitialized proxy
+     */
+    public static boolean isLoaded(Object value) {
+        var metaOption = VavrBindings.metaOption();
+        if (metaOption.isSuperClassOf(value))
+            value = metaOption.getOrNull(value);
+
+        return !(value instanceof Unloaded) && Hibernate.isInitialized(value);
+    }
+
+    static boolean isEnabled(SharedSessionContractImplementor session) {
+        return !ENABLED.isEmpty() && ENABLED.contains(session.getFactory());
+    }
+
+    // runs while bag still belongs to its session
+    static void detach(PersistentCollection<?> bag) {
+        var owner = bag.getOwner();
+        var role = bag.getRole();
+        if (owner == null || role == null)
+            return;
+
+        // roles nested in an embeddable have a field of the embeddable, not of the owner
+        var field = Utils.roleToField(owner.getClass(), role);
+        if (field == null || !field.getDeclaringClass().isInstance(owner) || !VavrBindings.metaList().isSuperClassOf(field.getType())
+                || Utils.getRefl(owner, field) != bag)
+            return;
+
+        var replacement = replacement(bag);
+        if (replacement != null)
+            Utils.setRefl(owner, field, replacement);
+    }
+
+    private static Object replacement(PersistentCollection<?> bag) {
+        var metaList = VavrBindings.metaList();
+        if (!bag.wasInitialized())
+            return metaList.bag().unloaded(bag.getRole());
+
+        return metaList.bag().ofReadOnly(metaList.toJava(bag));
+    }
+
+    private static void materialize(Object o, Set<Object> visited) {
+        if (o == null || !Hibernate.isInitialized(o))
+            return;
+
+        var entity = Hibernate.unproxy(o);
+        var annotations = entity.getClass().getAnnotations();
+        if (!(isEntity(annotations) || isEmbeddable(annotations)) || !visited.add(entity))
+            return;
+
+        var metaList = VavrBindings.metaList();
+        var metaOption = VavrBindings.metaOption();
+        Utils.fields(entity).forEach(field -> {
+            if (Modifier.isStatic(field.getModifiers()))
+                return;
+
+            var value = Utils.getRefl(entity, field);
+            if (value instanceof PersistentCollection) {
+                var bag = (PersistentCollection<?>) value;
+                if (bag.wasInitialized() && metaList.isSuperClassOf(bag))
+                    metaList.toJava(bag).forEach(element -> materialize(element, visited));
+                else if (bag.wasInitialized() && bag instanceof Collection)
+                    ((Collection<?>) bag).forEach(element -> materialize(element, visited));
+
+                if (!metaList.isSuperClassOf(field.getType()))
+                    return;
+
+                if (isAttached(bag))
+                    throw new IllegalStateException("Entity is still attached, close or clear its session first: " + bag.getRole());
+
+                var replacement = replacement(bag);
+                if (replacement != null)
+                    Utils.setRefl(entity, field, replacement);
+            } else if (metaList.isSuperClassOf(value) && !(value instanceof Unloaded))
+                metaList.toJava(value).forEach(element -> materialize(element, visited));
+            else if (metaOption.isSuperClassOf(value))
+                materialize(metaOption.getOrNull(value), visited);
+            else
+                materialize(value, visited);
+        });
+    }
+
+    private static boolean isAttached(PersistentCollection<?> bag) {
+        if (!(bag instanceof AbstractPersistentCollection))
+            return false;
+
+        var session = ((AbstractPersistentCollection<?>) bag).getSession();
+        return session != null && session.isOpen();
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate6.hibernate;
+
+import io.github.jleblanc64.hibernate6.hibernate.duplicate.MyPersistentBag;
+import io.github.jleblanc64.hibernate6.meta.Unloaded;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.bytecode.enhance.internal.tracker.DirtyTracker;
+import org.hibernate.bytecode.enhance.spi.EnhancerConstants;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.engine.internal.ManagedTypeHelper;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.Status;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AutoFlushEvent;
+import org.hibernate.event.spi.AutoFlushEventListener;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.FlushEvent;
+import org.hibernate.event.spi.FlushEventListener;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.metamodel.mapping.EntityMappingType;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+/**
+ * Opt-in, with {@code hibernate.vavr.list_replacement=true}.
+ * <p>
+ * Vavr Lists are immutable: {@code customer.setOrders(customer.getOrders().append(order))} replaces the
+ * persistent bag of the managed owner with a plain List.
+ * <p>
+ * Hibernate dereferences the bag, then removes and recreates the whole collection, or throws for an
+ * orphanRemoval association. Before each flush, the elements of the plain List are moved into the loaded bag
+ * it replaced instead, and the bag is set back on the owner: the flush only writes the rows that changed.
+ * A bag that was never loaded is left to Hibernate rather than selected, unless its orphans have to be deleted.
+ */
+public class ListReplacement implements Integrator {
+    public static final String SETTING = "hibernate.vavr.list_replacement";
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext, SessionFactoryImplementor sessionFactory) {
+        if (!ConfigurationHelper.getBoolean(SETTING, sessionFactory.getProperties()))
+            return;
+
+        var listener = new Listener();
+        var registry = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.prependListeners(EventType.FLUSH, listener);
+        registry.prependListeners(EventType.AUTO_FLUSH, listener);
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+
+    // a bytecode enhanced owner tracked the replaced List as a change of its own: the bag writes it
+    static void untrack(Object owner, String attributeName) {
+        if (!ManagedTypeHelper.isSelfDirtinessTracker(owner))
+            return;
+
+        // $$_hibernate_clearDirtyAttributes() would also reset the sizes of the collection tracker
+        var tracker = (DirtyTracker) Utils.getRefl(owner, EnhancerConstants.TRACKER_FIELD_NAME);
+        if (tracker == null || !tracker.contains(attributeName))
+            return;
+
+        var dirty = tracker.get();
+        tracker.clear();
+        for (var name : dirty)
+            if (!name.equals(attributeName))
+                tracker.add(name);
+    }
+
+    private static class Listener implements FlushEventListener, AutoFlushEventListener {
+        @Override
+        public void onFlush(FlushEvent event) {
+            restoreBags(event.getSession());
+        }
+
+        @Override
+        public void onAutoFlush(AutoFlushEvent event) {
+            restoreBags(event.getSession());
+        }
+
+        private static void restoreBags(EventSource session) {
+            var persistenceContext = session.getPersistenceContextInternal();
+            if (persistenceContext.getCollectionEntriesSize() == 0)
+                return;
+
+            // restoring initializes the bags of orphanRemoval associations, which adds collection entries
+            var bags = new ArrayList<MyPersistentBag<?>>();
+            persistenceContext.forEachCollectionEntry((collection, entry) -> {
+                var persister = entry.getLoadedPersister();
+                if (collection instanceof MyPersistentBag && persister != null
+                        && (collection.wasInitialized() || persister.hasOrphanDelete()))
+                    bags.add((MyPersistentBag<?>) collection);
+            }, false);
+
+            for (var bag : bags)
+                restore(bag, session);
+        }
+
+        private static void restore(MyPersistentBag bag, EventSource session) {
+            var owner = bag.getOwner();
+            var persister = session.getPersistenceContextInternal().getCollectionEntry(bag).getLoadedPersister();
+            var attribute = persister.getAttributeMapping();
+            // bags of embeddables are left to Hibernate
+            if (owner == null || !(attribute.getDeclaringType() instanceof EntityMappingType))
+                return;
+
+            var ownerEntry = session.getPersistenceContextInternal().getEntry(owner);
+            if (ownerEntry == null || ownerEntry.getStatus() != Status.MANAGED)
+                return;
+
+            var type = ownerEntry.getPersister().getPropertyTypes()[attribute.getStateArrayPosition()];
+            if (!(type instanceof VavrBagType))
+                return;
+
+            var access = attribute.getPropertyAccess();
+            var value = access.getGetter().get(owner);
+            if (value == null || value instanceof PersistentCollection || value instanceof Unloaded)
+                return;
+
+            var elements = new ArrayList<>();
+            for (Iterator<?> it = ((VavrBagType) type).getElementsIterator(value); it.hasNext(); )
+                elements.add(it.next());
+
+            bag.replaceElements(elements, persister);
+            access.getSetter().set(owner, bag);
+            untrack(owner, attribute.getAttributeName());
+        }
+    }
+}
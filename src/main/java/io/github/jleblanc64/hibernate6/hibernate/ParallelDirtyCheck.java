@@ -0,0 +1,85 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate6.hibernate;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Opt-in, with {@code hibernate.vavr.parallel_dirty_check_threshold=<size>}: bags of at least that size group
+ * their elements by hash, compare occurrences and deep copy their snapshot in parallel.
+ * <p>
+ * Each session factory runs them on its own pool of {@code hibernate.vavr.parallel_dirty_check_parallelism}
+ * threads (the number of processors by default), shut down with the factory.
+ * <p>
+ * Only Type.getHashCode, isSame and deepCopy run concurrently: fine for basic, embeddable and entity element
+ * types, not for custom types with mutable state.
+ */
+public class ParallelDirtyCheck implements Integrator {
+    public static final String SETTING = "hibernate.vavr.parallel_dirty_check_threshold";
+    public static final String PARALLELISM = "hibernate.vavr.parallel_dirty_check_parallelism";
+
+    // factories with the setting on
+    private static final Map<SessionFactoryImplementor, Pool> POOLS = new ConcurrentHashMap<>();
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext, SessionFactoryImplementor sessionFactory) {
+        var properties = sessionFactory.getProperties();
+        var threshold = ConfigurationHelper.getInt(SETTING, properties, 0);
+        if (threshold <= 0)
+            return;
+
+        var parallelism = ConfigurationHelper.getInt(PARALLELISM, properties, Runtime.getRuntime().availableProcessors());
+        POOLS.put(sessionFactory, new Pool(threshold, new ForkJoinPool(parallelism)));
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        var pool = POOLS.remove(sessionFactory);
+        if (pool != null)
+            pool.forkJoinPool.shutdown();
+    }
+
+    /**
+     * @return pool to check a bag of that size on, null to check it on the calling thread
+     */
+    public static ForkJoinPool pool(SharedSessionContractImplementor session, int size) {
+        if (session == null || POOLS.isEmpty())
+            return null;
+
+        var pool = POOLS.get(session.getFactory());
+        return pool != null && size >= pool.threshold ? pool.forkJoinPool : null;
+    }
+
+    private static class Pool {
+        private final int threshold;
+        private final ForkJoinPool forkJoinPool;
+
+        Pool(int threshold, ForkJoinPool forkJoinPool) {
+            this.threshold = threshold;
+            this.forkJoinPool = forkJoinPool;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate6.hibernate;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * Exports all the entities of a class, in parallel over ranges of their numeric ids.
+ * <p>
+ * Each range is read by its own worker (a virtual thread when the JDK has them, a pool thread otherwise) with its
+ * own StatelessSession, by pages. Each page runs one more query per Vavr List attribute, so its attributes hold
+ * plain immutable lists. Collections of the collection elements are not fetched.
+ * <p>
+ * Pages go through a bounded queue: workers wait while the sink lags behind. The sink runs on the calling thread,
+ * in no particular order.
+ */
+public class ParallelExport {
+    public static <T> void export(SessionFactory sessionFactory, Class<T> entityClass, Consumer<? super T> sink) {
+        export(sessionFactory, entityClass, Runtime.getRuntime().availableProcessors(), 500, sink);
+    }
+
+    public static <T> void export(SessionFactory sessionFactory, Class<T> entityClass, int partitions, int pageSize,
+                                  Consumer<? super T> sink) {
+        var factory = sessionFactory.unwrap(SessionFactoryImplementor.class);
+        var persister = factory.getMappingMetamodel().getEntityDescriptor(entityClass);
+        var idClass = persister.getIdentifierType().getReturnedClass();
+        if (idClass != Long.class && idClass != Integer.class)
+            throw new IllegalArgumentException("Parallel export needs a Long or Integer id: " + entityClass.getName());
+
+        var idName = persister.getIdentifierPropertyName();
+        var bounds = sessionFactory.fromStatelessSession(session -> session.createSelectionQuery(
+                "select min(e." + idName + "), max(e." + idName + ") from " + persister.getEntityName() + " e", Object[].class)
+                .getSingleResult());
+        if (bounds[0] == null)
+            return;
+
+        var min = ((Number) bounds[0]).longValue();
+        var max = ((Number) bounds[1]).longValue();
+        var size = Math.max(1, (max - min) / partitions + 1);
+
+        var queue = new ArrayBlockingQueue<Object>(2 * partitions);
+        var workers = 0;
+        var executor = VirtualThreads.newExecutor("vavr-export", partitions);
+        try {
+            for (var lo = min; lo <= max; lo += size) {
+                var from = lo;
+                var to = Math.min(max, lo + size - 1);
+                executor.execute(() -> {
+                    Object last;
+                    try {
+                        exportRange(sessionFactory, persister, entityClass, from, to, pageSize, queue);
+                        last = Done.INSTANCE;
+                    } catch (InterruptedException e) {
+                        // the export was aborted, nobody reads the queue anymore
+                        return;
+                    } catch (Throwable e) {
+                        last = new Failure(e);
+                    }
+
+                    try {
+                        queue.put(last);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+                workers++;
+            }
+
+            while (workers > 0) {
+                var item = queue.take();
+                if (item == Done.INSTANCE)
+                    workers--;
+                else if (item instanceof Failure)
+                    throw new RuntimeException("Parallel export of " + entityClass.getName() + " failed", ((Failure) item).cause);
+                else
+                    ((List<T>) item).forEach(sink);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static <T> void exportRange(SessionFactory sessionFactory, EntityPersister persister, Class<T> entityClass,
+                                        long from, long to, int pageSize, BlockingQueue<Object> queue) throws InterruptedException {
+        var idName = persister.getIdentifierPropertyName();
+        var hql = "from " + persister.getEntityName() + " e where e." + idName + " > :after and e." + idName + " <= :to"
+                + " order by e." + idName;
+
+        try (var session = sessionFactory.openStatelessSession()) {
+            var implementor = (SharedSessionContractImplementor) session;
+            var after = from - 1;
+            while (true) {
+                var page = session.createSelectionQuery(hql, entityClass)
+                        .setParameter("after", id(persister, after))
+                        .setParameter("to", id(persister, to))
+                        .setMaxResults(pageSize)
+                        .getResultList();
+                if (page.isEmpty())
+                    return;
+
+                fetchVavrLists(session, persister, page);
+                queue.put(page);
+
+                if (page.size() < pageSize)
+                    return;
+
+                after = ((Number) persister.getIdentifier(page.get(page.size() - 1), implementor)).longValue();
+            }
+        }
+    }
+
+    private static void fetchVavrLists(StatelessSession session, EntityPersister persister, List<?> page) {
+        var types = persister.getPropertyTypes();
+        var names = persister.getPropertyNames();
+        var metaList = VavrBindings.metaList();
+        var implementor = (SharedSessionContractImplementor) session;
+
+        var ids = new ArrayList<>(page.size());
+        page.forEach(entity -> ids.add(persister.getIdentifier(entity, implementor)));
+
+        for (var i = 0; i < types.length; i++) {
+            if (!(types[i] instanceof VavrBagType))
+                continue;
+
+            var rows = session.createSelectionQuery("select e." + persister.getIdentifierPropertyName() + ", c from "
+                    + persister.getEntityName() + " e join e." + names[i] + " c where e." + persister.getIdentifierPropertyName()
+                    + " in :ids", Object[].class).setParameterList("ids", ids).getResultList();
+
+            var elements = new HashMap<Object, List<Object>>();
+            rows.forEach(row -> elements.computeIfAbsent(row[0], id -> new ArrayList<>()).add(row[1]));
+
+            for (var entity : page) {
+                var list = elements.getOrDefault(persister.getIdentifier(entity, implementor), List.of());
+                persister.setPropertyValue(entity, i, metaList.fromJava(list));
+            }
+        }
+    }
+
+    private static Object id(EntityPersister persister, long id) {
+        if (persister.getIdentifierType().getReturnedClass() == Integer.class)
+            return (int) id;
+
+        return id;
+    }
+
+    private enum Done {
+        INSTANCE
+    }
+
+    private static class Failure {
+        private final Throwable cause;
+
+        private Failure(Throwable cause) {
+            this.cause = cause;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate6.hibernate;
+
+import io.github.jleblanc64.hibernate6.jfr.HookEvent;
+import io.github.jleblanc64.hibernate6.meta.MetaList;
+import io.github.jleblanc64.hibernate6.meta.MetaOption;
+import io.github.jleblanc64.libcustom.LibCustom;
+import io.vavr.collection.Seq;
+import io.vavr.collection.Set;
+import io.vavr.collection.Traversable;
+import org.hibernate.query.internal.QueryParameterBindingImpl;
+
+import java.util.AbstractCollection;
+import java.util.Iterator;
+
+/**
+ * Vavr values bound to query parameters, by {@code query.setParameter(...)} or Criteria parameters: an Option binds
+ * its value or null, a Seq or Set binds a multi-valued parameter, e.g. {@code where o.id in :ids}.
+ * <p>
+ * Seqs and Sets are bound through a java.util.Collection view, without copying. IN lists are padded by Hibernate, with
+ * {@code hibernate.query.in_clause_parameter_padding=true}.
+ */
+public class QueryParameters {
+    static void overrideCustom(MetaList metaList, MetaOption metaOption) {
+        // setBindValue(value, resolveJdbcTypeIfNecessary), setBindValue(value, type) and setBindValue(value, temporalType)
+        LibCustom.modifyArgWithSelf(QueryParameterBindingImpl.class, "setBindValue", 0, argsSelf -> HookEvent.record("QueryParameterBindingImpl.setBindValue", () -> {
+            var value = argsSelf.args[0];
+            if (metaOption.isSuperClassOf(value))
+                return metaOption.getOrNull(value);
+
+            var binding = (QueryParameterBindingImpl<?>) argsSelf.self;
+            if (!binding.getQueryParameter().allowsMultiValuedBinding())
+                return LibCustom.ORIGINAL;
+
+            if (metaList.isSuperClassOf(value))
+                return metaList.toJava(value);
+
+            if (value instanceof Seq || value instanceof Set)
+                return new View((Traversable<?>) value);
+
+            return LibCustom.ORIGINAL;
+        }));
+    }
+
+    private static class View extends AbstractCollection<Object> {
+        private final Traversable<?> values;
+
+        View(Traversable<?> values) {
+            this.values = values;
+        }
+
+        @Override
+        public Iterator<Object> iterator() {
+            return (Iterator<Object>) values.iterator();
+        }
+
+        @Override
+        public int size() {
+            return values.size();
+        }
+    }
+}
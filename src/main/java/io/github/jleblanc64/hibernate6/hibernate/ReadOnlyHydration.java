@@ -0,0 +1,199 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate6.hibernate;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.engine.spi.CollectionKey;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.Status;
+import org.hibernate.event.internal.DefaultFlushEntityEventListener;
+import org.hibernate.event.service.spi.DuplicationStrategy;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.FlushEntityEvent;
+import org.hibernate.event.spi.InitializeCollectionEvent;
+import org.hibernate.event.spi.InitializeCollectionEventListener;
+import org.hibernate.event.spi.PostLoadEvent;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Opt-in, with {@code hibernate.vavr.read_only_hydration=true}
+ * ({@code spring.jpa.properties.hibernate.vavr.read_only_hydration} with Spring Boot).
+ * <p>
+ * Once loaded, the Vavr List attributes of read-only entities ({@code @Transactional(readOnly = true)},
+ * {@code session.setDefaultReadOnly(true)}, read-only queries) are replaced by the plain immutable collection
+ * of {@link io.github.jleblanc64.hibernate6.meta.BagProvider#ofReadOnly}. The persistent bag and its snapshot
+ * are dropped from the session, so flushes skip them.
+ * <p>
+ * Lazy bags are replaced when initialized, the reference already handed to the caller stays a working bag.
+ * Flushes leave the plain collections of read-only owners as they are. Making such an entity read-write again
+ * recreates its collections on the next flush.
+ */
+public class ReadOnlyHydration implements Integrator {
+    public static final String SETTING = "hibernate.vavr.read_only_hydration";
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext, SessionFactoryImplementor sessionFactory) {
+        if (!ConfigurationHelper.getBoolean(SETTING, sessionFactory.getProperties()))
+            return;
+
+        var vavrProperties = new VavrProperties();
+        var listener = new Listener(vavrProperties);
+        var registry = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_LOAD, listener);
+        registry.appendListeners(EventType.INIT_COLLECTION, listener);
+
+        var flushEntity = registry.getEventListenerGroup(EventType.FLUSH_ENTITY);
+        flushEntity.addDuplicationStrategy(new DuplicationStrategy() {
+            @Override
+            public boolean areMatch(Object listener, Object original) {
+                return listener instanceof FlushEntityListener && original.getClass() == DefaultFlushEntityEventListener.class;
+            }
+
+            @Override
+            public Action getAction() {
+                return Action.REPLACE_ORIGINAL;
+            }
+        });
+        flushEntity.appendListener(new FlushEntityListener(vavrProperties));
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+
+    // entity name -> indexes of its VavrBagType properties
+    private static class VavrProperties {
+        private final Map<String, int[]> indexes = new ConcurrentHashMap<>();
+
+        int[] of(EntityPersister persister) {
+            return indexes.computeIfAbsent(persister.getEntityName(), name -> {
+                var types = persister.getPropertyTypes();
+                return IntStream.range(0, types.length).filter(i -> types[i] instanceof VavrBagType).toArray();
+            });
+        }
+    }
+
+    /**
+     * The WrapVisitor of a flush would wrap the plain collections of a read-only owner into new bags, then recreate
+     * them: they are hidden from the default listener.
+     */
+    private static class FlushEntityListener extends DefaultFlushEntityEventListener {
+        private final VavrProperties vavrProperties;
+
+        FlushEntityListener(VavrProperties vavrProperties) {
+            this.vavrProperties = vavrProperties;
+        }
+
+        @Override
+        public void onFlushEntity(FlushEntityEvent event) {
+            var entry = event.getEntityEntry();
+            if (entry.getStatus() != Status.READ_ONLY || !entry.getPersister().hasCollections()) {
+                super.onFlushEntity(event);
+                return;
+            }
+
+            var entity = event.getEntity();
+            var persister = entry.getPersister();
+            var hidden = new HashMap<Integer, Object>();
+            for (var i : vavrProperties.of(persister)) {
+                var value = persister.getPropertyValue(entity, i);
+                if (value != null && !(value instanceof PersistentCollection)) {
+                    hidden.put(i, value);
+                    persister.setPropertyValue(entity, i, null);
+                }
+            }
+
+            try {
+                super.onFlushEntity(event);
+            } finally {
+                hidden.forEach((i, value) -> persister.setPropertyValue(entity, i, value));
+            }
+        }
+    }
+
+    private static class Listener implements PostLoadEventListener, InitializeCollectionEventListener {
+        private final VavrProperties vavrProperties;
+
+        Listener(VavrProperties vavrProperties) {
+            this.vavrProperties = vavrProperties;
+        }
+
+        @Override
+        public void onPostLoad(PostLoadEvent event) {
+            var entity = event.getEntity();
+            var persister = event.getPersister();
+            if (!isReadOnly(entity, event.getSession()))
+                return;
+
+            for (var i : vavrProperties.of(persister))
+                replace(entity, persister, i, event.getSession());
+        }
+
+        @Override
+        public void onInitializeCollection(InitializeCollectionEvent event) {
+            var owner = event.getAffectedOwnerOrNull();
+            var session = event.getSession();
+            if (owner == null || !isReadOnly(owner, session))
+                return;
+
+            var persister = session.getEntityPersister(event.getAffectedOwnerEntityName(), owner);
+            for (var i : vavrProperties.of(persister))
+                if (persister.getPropertyValue(owner, i) == event.getCollection())
+                    replace(owner, persister, i, session);
+        }
+
+        private static boolean isReadOnly(Object entity, EventSource session) {
+            var entry = session.getPersistenceContextInternal().getEntry(entity);
+            return entry != null && entry.isReadOnly();
+        }
+
+        private static void replace(Object entity, EntityPersister persister, int i, EventSource session) {
+            var value = persister.getPropertyValue(entity, i);
+            if (!(value instanceof PersistentCollection))
+                return;
+
+            var bag = (PersistentCollection<?>) value;
+            if (!bag.wasInitialized())
+                return;
+
+            var type = (VavrBagType) persister.getPropertyTypes()[i];
+            var plain = type.readOnly(bag);
+            if (plain == null)
+                return;
+
+            // same as an evict of the collection
+            var persistenceContext = session.getPersistenceContextInternal();
+            var entry = persistenceContext.removeCollectionEntry(bag);
+            if (entry != null && entry.getLoadedPersister() != null)
+                persistenceContext.removeCollectionByKey(new CollectionKey(entry.getLoadedPersister(), entry.getLoadedKey()));
+
+            persister.setPropertyValue(entity, i, plain);
+        }
+    }
+}
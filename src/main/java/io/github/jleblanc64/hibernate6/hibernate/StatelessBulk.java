@@ -0,0 +1,163 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate6.hibernate;
+
+import org.hibernate.Hibernate;
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.CascadingAction;
+import org.hibernate.engine.spi.CascadingActions;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Bulk writes of aggregates with Vavr List children through a StatelessSession, without persistence context
+ * nor snapshots.
+ * <p>
+ * A StatelessSession writes the rows of the collections an entity owns, but does not cascade to their elements.
+ * These methods also write the entity elements of the cascaded one-to-many Vavr List attributes, before their
+ * owner when the owner holds the join column, after it when the children do (mappedBy).
+ * <p>
+ * Aggregates are written level by level and grouped by entity type, so each statement fills its batch.
+ * Statements are batched with {@code hibernate.jdbc.batch_size} (or {@code session.setJdbcBatchSize}), and a
+ * sequence or table id generator: identity columns disable insert batching.
+ */
+public class StatelessBulk {
+    public static void insert(StatelessSession session, Iterable<?> aggregates) {
+        insertAll(session, toList(aggregates));
+    }
+
+    public static Object insert(StatelessSession session, Object aggregate) {
+        insertAll(session, java.util.List.of(aggregate));
+        return persister(session, aggregate).getIdentifier(aggregate, (SharedSessionContractImplementor) session);
+    }
+
+    public static void upsert(StatelessSession session, Iterable<?> aggregates) {
+        upsertAll(session, toList(aggregates));
+    }
+
+    public static void upsert(StatelessSession session, Object aggregate) {
+        upsertAll(session, java.util.List.of(aggregate));
+    }
+
+    /**
+     * Level by level, and grouped by entity type within a level: a JDBC batch only holds one statement, switching
+     * statements executes it. The rows of the owned Vavr List collections are written after all the owners.
+     */
+    private static void insertAll(StatelessSession session, java.util.List<Object> entities) {
+        if (entities.isEmpty())
+            return;
+
+        insertAll(session, children(session, entities, CascadingActions.PERSIST, false));
+
+        var sessionImpl = (SharedSessionContractImplementor) session;
+        var metamodel = sessionImpl.getFactory().getMappingMetamodel();
+        var empty = VavrBindings.metaList().fromJava(new ArrayList<>());
+        // type of the role -> owners and their collection, hidden from the insert of the owner by an empty List
+        var collections = new LinkedHashMap<VavrBagType, java.util.List<Object[]>>();
+        for (var entity : byType(entities)) {
+            var persister = persister(session, entity);
+            var types = persister.getPropertyTypes();
+            var hidden = new HashMap<Integer, Object>();
+            for (var i = 0; i < types.length; i++) {
+                var value = persister.getPropertyValue(entity, i);
+                if (types[i] instanceof VavrBagType && value != null && !metamodel.getCollectionDescriptor(((VavrBagType) types[i]).getRole()).isInverse()) {
+                    hidden.put(i, value);
+                    persister.setPropertyValue(entity, i, empty);
+                }
+            }
+
+            Object id;
+            try {
+                id = session.insert(entity);
+            } finally {
+                hidden.forEach((i, value) -> persister.setPropertyValue(entity, i, value));
+            }
+
+            hidden.forEach((i, value) -> collections.computeIfAbsent((VavrBagType) types[i], type -> new ArrayList<>())
+                    .add(new Object[]{id, value}));
+        }
+
+        collections.forEach((type, owners) -> {
+            var collectionPersister = metamodel.getCollectionDescriptor(type.getRole());
+            for (var owner : owners)
+                collectionPersister.recreate(type.wrap(sessionImpl, owner[1]), owner[0], sessionImpl);
+        });
+
+        insertAll(session, children(session, entities, CascadingActions.PERSIST, true));
+    }
+
+    private static void upsertAll(StatelessSession session, java.util.List<Object> entities) {
+        if (entities.isEmpty())
+            return;
+
+        upsertAll(session, children(session, entities, CascadingActions.MERGE, false));
+        byType(entities).forEach(session::upsert);
+        upsertAll(session, children(session, entities, CascadingActions.MERGE, true));
+    }
+
+    private static java.util.List<Object> byType(java.util.List<Object> entities) {
+        var byType = new LinkedHashMap<Class<?>, java.util.List<Object>>();
+        entities.forEach(entity -> byType.computeIfAbsent(entity.getClass(), c -> new ArrayList<>()).add(entity));
+
+        var sorted = new ArrayList<>(entities.size());
+        byType.values().forEach(sorted::addAll);
+        return sorted;
+    }
+
+    private static java.util.List<Object> children(StatelessSession session, java.util.List<Object> entities, CascadingAction<?> action,
+                                                   boolean inverse) {
+        var children = new ArrayList<>();
+        entities.forEach(entity -> forEachChild(session, entity, action, inverse, children::add));
+        return children;
+    }
+
+    private static java.util.List<Object> toList(Iterable<?> iterable) {
+        var list = new ArrayList<>();
+        iterable.forEach(list::add);
+        return list;
+    }
+
+    private static EntityPersister persister(StatelessSession session, Object entity) {
+        return ((SharedSessionContractImplementor) session).getFactory().getMappingMetamodel().getEntityDescriptor(entity.getClass());
+    }
+
+    private static void forEachChild(StatelessSession session, Object entity, CascadingAction<?> action, boolean inverse,
+                                     Consumer<Object> consumer) {
+        var metamodel = ((SharedSessionContractImplementor) session).getFactory().getMappingMetamodel();
+        var persister = metamodel.getEntityDescriptor(entity.getClass());
+        var types = persister.getPropertyTypes();
+        var cascades = persister.getPropertyCascadeStyles();
+        var metaList = VavrBindings.metaList();
+
+        for (var i = 0; i < types.length; i++) {
+            if (!(types[i] instanceof VavrBagType) || !cascades[i].doCascade(action))
+                continue;
+
+            var collectionPersister = metamodel.getCollectionDescriptor(((VavrBagType) types[i]).getRole());
+            if (!collectionPersister.isOneToMany() || collectionPersister.isInverse() != inverse)
+                continue;
+
+            var value = persister.getPropertyValue(entity, i);
+            if (metaList.isSuperClassOf(value) && Hibernate.isInitialized(value))
+                metaList.toJava(value).forEach(consumer);
+        }
+    }
+}
@@ -17,6 +17,7 @@ package io.github.jleblanc64.hibernate6.hibernate;
 
 import io.github.jleblanc64.hibernate6.meta.WithClass;
 import io.github.jleblanc64.libcustom.functional.ListF;
+import jakarta.persistence.Embeddable;
 import jakarta.persistence.Entity;
 import lombok.SneakyThrows;
 import org.hibernate.collection.spi.AbstractPersistentCollection;
@@ -24,6 +25,13 @@ import org.hibernate.collection.spi.AbstractPersistentCollection;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 import static io.github.jleblanc64.libcustom.Reflection.getAllFields;
@@ -32,21 +40,96 @@ import static io.github.jleblanc64.libcustom.functional.ListF.f;
 public class Utils {
     private static Class PERSISTENT_COLLECTION_CLASS = AbstractPersistentCollection.class;
 
-    @SneakyThrows
-    private static Field roleToField(String role) {
-        var i = role.lastIndexOf(".");
-        var className = role.substring(0, i);
-        var fieldName = role.substring(i + 1);
+    // shared by all SessionFactories, safe for concurrent bootstraps
+    // per class loader, the owner class name of each role, "" when no class owns it: names keep no loader reachable
+    private static final Map<ClassLoader, Map<String, String>> ROLE_OWNERS = Collections.synchronizedMap(new WeakHashMap<>());
+    private static final Map<String, Pattern> PATTERNS = new ConcurrentHashMap<>();
+    private static final ClassValue<Map<String, Field>> FIELDS = new ClassValue<>() {
+        @Override
+        protected Map<String, Field> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+    // per class, the field at the end of each property path, empty when there is none
+    private static final ClassValue<Map<String, Optional<Field>>> PATH_FIELDS = new ClassValue<>() {
+        @Override
+        protected Map<String, Optional<Field>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    /**
+     * @return field of the role, declared by an embeddable for roles nested in one, null for a role no class owns
+     */
+    static Field roleToField(String role) {
+        var loader = classLoader();
+        var owner = ROLE_OWNERS.computeIfAbsent(loader, l -> new ConcurrentHashMap<>())
+                .computeIfAbsent(role, r -> findRoleOwner(r, loader));
+        if (owner.isEmpty())
+            return null;
+
+        var ownerClass = loadClass(owner, loader);
+        return ownerClass == null ? null : pathToField(ownerClass, role.substring(owner.length() + 1));
+    }
+
+    /**
+     * @return field of the role, when owned by ownerClass or one of its superclasses, without loading classes by name
+     */
+    static Field roleToField(Class<?> ownerClass, String role) {
+        for (var c = ownerClass; c != null; c = c.getSuperclass()) {
+            var name = c.getName();
+            if (role.length() > name.length() && role.startsWith(name) && role.charAt(name.length()) == '.')
+                return pathToField(c, role.substring(name.length() + 1));
+        }
+
+        return null;
+    }
 
-        return Class.forName(className).getDeclaredField(fieldName);
+    private static Field pathToField(Class<?> owner, String path) {
+        return PATH_FIELDS.get(owner).computeIfAbsent(path, p -> Optional.ofNullable(findPathField(owner, p))).orElse(null);
     }
 
-    public static boolean isOfType(Object pers, WithClass w) {
-        var role = getRefl(pers, "navigableRole");
-        var path = (String) getRefl(role, "fullPath");
+    // the entity name starting the role is its longest prefix naming a class
+    private static String findRoleOwner(String role, ClassLoader loader) {
+        for (var i = role.lastIndexOf('.'); i > 0; i = role.lastIndexOf('.', i - 1)) {
+            var owner = role.substring(0, i);
+            if (loadClass(owner, loader) != null)
+                return owner;
+        }
 
-        var field = roleToField(path);
-        return w.isSuperClassOf(field.getType());
+        return "";
+    }
+
+    private static Field findPathField(Class<?> owner, String path) {
+        Field field = null;
+        var type = owner;
+        for (var name : path.split("\\.")) {
+            field = findField(type, name);
+            if (field == null)
+                return null;
+
+            type = field.getType();
+        }
+
+        return field;
+    }
+
+    private static ClassLoader classLoader() {
+        var loader = Thread.currentThread().getContextClassLoader();
+        return loader != null ? loader : Utils.class.getClassLoader();
+    }
+
+    private static Class<?> loadClass(String className, ClassLoader loader) {
+        try {
+            return Class.forName(className, false, loader);
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+    }
+
+    public static boolean isOfType(String role, WithClass w) {
+        var field = roleToField(role);
+        return field != null && w.isSuperClassOf(field.getType());
     }
 
     @SneakyThrows
@@ -60,13 +143,39 @@ public class Utils {
         return o;
     }
 
+    /**
+     * @return true if the class loads and links: spring-web without the servlet API has the class, not its dependencies
+     */
+    public static boolean isPresent(String className) {
+        try {
+            Class.forName(className, true, Utils.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    public static boolean isNativeImage() {
+        return System.getProperty("org.graalvm.nativeimage.imagecode") != null;
+    }
+
     public static boolean isEntity(Annotation[] annotations) {
         return f(annotations).stream().anyMatch(a -> a instanceof Entity);
     }
 
+    public static boolean isEmbeddable(Annotation[] annotations) {
+        return f(annotations).stream().anyMatch(a -> a instanceof Embeddable);
+    }
+
     public static Object getRefl(Object o, String field) {
-        var f = findField(o.getClass(), field);
-        return getRefl(o, f);
+        return getRefl(o, field(o.getClass(), field));
+    }
+
+    /**
+     * @return field declared by clazz or a superclass, null when there is none
+     */
+    public static Field field(Class<?> clazz, String field) {
+        return FIELDS.get(clazz).computeIfAbsent(field, name -> findField(clazz, name));
     }
 
     private static Field findField(Class<?> clazz, String field) {
@@ -98,13 +207,16 @@ public class Utils {
         return f(getAllFields(o.getClass()));
     }
 
-    @SneakyThrows
-    public static Class<?> paramClass(String clazz) {
-        return Class.forName(regex0(clazz, "(?<=\\<).*(?=\\>)"));
+    /**
+     * @return class of the type parameter of a Vavr type, e.g. Order for List&lt;Order&gt;
+     */
+    public static Class<?> paramClass(Type type) {
+        var param = ((ParameterizedType) type).getActualTypeArguments()[0];
+        return (Class<?>) (param instanceof ParameterizedType ? ((ParameterizedType) param).getRawType() : param);
     }
 
     public static String regex0(String s, String pattern) {
-        var matcher = Pattern.compile(pattern).matcher(s);
+        var matcher = PATTERNS.computeIfAbsent(pattern, Pattern::compile).matcher(s);
         matcher.find();
         return matcher.group(0);
     }
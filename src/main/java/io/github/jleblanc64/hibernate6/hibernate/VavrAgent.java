@@ -0,0 +1,40 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate6.hibernate;
+
+import net.bytebuddy.agent.Installer;
+
+import java.lang.instrument.Instrumentation;
+
+/**
+ * Java agent entry point: {@code java -javaagent:vavr-hibernate6.jar ...}
+ * <p>
+ * Hands the JVM provided Instrumentation to Byte Buddy, so that {@code LibCustom.load()} reuses it
+ * instead of self-attaching an agent at runtime. Needed when the attach mechanism is disabled
+ * ({@code -XX:+DisableAttachMechanism}), and saves the attach at every start otherwise.
+ * <p>
+ * byte-buddy-agent must be on the system class path, as with a plain class path launch. For a Spring Boot
+ * fat jar, pass the byte-buddy-agent jar itself as the agent, it does the same thing.
+ */
+public class VavrAgent {
+    public static void premain(String args, Instrumentation instrumentation) {
+        Installer.premain(args, instrumentation);
+    }
+
+    public static void agentmain(String args, Instrumentation instrumentation) {
+        Installer.agentmain(args, instrumentation);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate6.hibernate;
+
+import io.github.jleblanc64.hibernate6.hibernate.duplicate.MyPersistentBag;
+import io.github.jleblanc64.hibernate6.meta.MetaList;
+import io.github.jleblanc64.hibernate6.meta.Unloaded;
+import org.hibernate.Hibernate;
+import org.hibernate.HibernateException;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.type.BagType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+
+import static io.github.jleblanc64.hibernate6.hibernate.Utils.checkPersistentBag;
+
+/**
+ * Collection type of the Vavr List roles, bound once per role while the metamodel is built.
+ * <p>
+ * Hibernate routes the role's CollectionSemantics to this type, so the bags come straight from the
+ * BagProvider, and plain java.util.List bags keep the untouched BagType.
+ */
+public class VavrBagType extends BagType {
+    private final MetaList metaList;
+    private volatile boolean checked;
+
+    public VavrBagType(String role, String propertyRef, MetaList<?> metaList) {
+        super(role, propertyRef);
+        this.metaList = metaList;
+    }
+
+    @Override
+    public PersistentCollection<?> instantiate(SharedSessionContractImplementor session, CollectionPersister persister, Object key)
+            throws HibernateException {
+        return check(metaList.bag().of(session));
+    }
+
+    @Override
+    public PersistentCollection<?> wrap(SharedSessionContractImplementor session, Object collection) {
+        if (metaList.isSuperClassOf(collection))
+            return check(metaList.bag().of(session, metaList.toJava(collection)));
+
+        return super.wrap(session, collection);
+    }
+
+    // left by DetachedGraph, same as an uninitialized bag for merge and cascades
+    @Override
+    public Object replace(Object original, Object target, SharedSessionContractImplementor session, Object owner,
+                          Map<Object, Object> copyCache) throws HibernateException {
+        if (original instanceof Unloaded)
+            return target;
+
+        // merge of a detached owner holding a loaded bag or a plain List: Hibernate only copies java.util.Collection
+        // elements, so they are copied into a new ArrayList, then moved into the managed bag or made a List again
+        if (metaList.isSuperClassOf(original) && Hibernate.isInitialized(original)) {
+            if (original == target)
+                return target;
+
+            var elements = (java.util.List<?>) super.replace(new ArrayList<>(metaList.toJava(original)), null, session, owner, copyCache);
+            if (target instanceof MyPersistentBag) {
+                var persister = session.getFactory().getMappingMetamodel().getCollectionDescriptor(getRole());
+                ((MyPersistentBag) target).replaceElements(elements, persister);
+                return target;
+            }
+
+            return metaList.fromJava(elements);
+        }
+
+        return super.replace(original, target, session, owner, copyCache);
+    }
+
+    @Override
+    public Iterator<?> getElementsIterator(Object collection) {
+        if (collection instanceof Unloaded)
+            return Collections.emptyIterator();
+
+        // cascades and orphan checks iterate bags and plain Lists alike, neither is a java.util.Collection
+        if (metaList.isSuperClassOf(collection))
+            return metaList.toJava(collection).iterator();
+
+        return super.getElementsIterator(collection);
+    }
+
+    /**
+     * @return plain immutable collection for a read-only owner, null to keep the bag
+     */
+    public Object readOnly(Object bag) {
+        return metaList.bag().ofReadOnly(metaList.toJava(bag));
+    }
+
+    private PersistentCollection<?> check(Object bag) {
+        if (!checked && bag != null) {
+            checkPersistentBag(bag);
+            checked = true;
+        }
+
+        return (PersistentCollection<?>) bag;
+    }
+}
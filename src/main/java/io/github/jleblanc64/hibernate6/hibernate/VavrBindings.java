@@ -0,0 +1,241 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate6.hibernate;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.deser.Deserializers;
+import com.fasterxml.jackson.databind.deser.ValueInstantiator;
+import com.fasterxml.jackson.databind.deser.std.ReferenceTypeDeserializer;
+import com.fasterxml.jackson.databind.jsontype.TypeDeserializer;
+import com.fasterxml.jackson.databind.type.TypeModifier;
+import io.github.jleblanc64.hibernate6.impl.MetaLazyImpl;
+import io.github.jleblanc64.hibernate6.impl.MetaListImpl;
+import io.github.jleblanc64.hibernate6.impl.MetaOptionImpl;
+import io.github.jleblanc64.hibernate6.meta.BagProvider;
+import io.github.jleblanc64.hibernate6.meta.MetaLazy;
+import io.github.jleblanc64.hibernate6.meta.MetaList;
+import io.github.jleblanc64.hibernate6.meta.MetaOption;
+import io.vavr.collection.List;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * MetaList, MetaOption and MetaLazy used by the installed hooks.
+ * <p>
+ * Hooks are woven once per JVM, against the delegating metaList(), metaOption() and metaLazy(). They use the binding
+ * of the context class loader of the running thread, so each application of a server, each Spring Boot restart...
+ * keeps its own; within a class loader the last binding wins, and closing a binding restores the previous one.
+ * Without any binding, the hooks use the default set by VavrHibernate6.overrideCustom.
+ * Bindings are expected to share their monad classes, which are read when the hooks are installed.
+ */
+public class VavrBindings {
+    // most recent first
+    private static final AtomicReference<List<Binding>> BINDINGS = new AtomicReference<>(List.empty());
+    private static volatile Binding defaultBinding = new Binding(new MetaListImpl(), new MetaOptionImpl(), new MetaLazyImpl(), null);
+    private static final MetaList METALIST = new CurrentMetaList();
+    private static final MetaOption METAOPTION = new CurrentMetaOption();
+    private static final MetaLazy METALAZY = new CurrentMetaLazy();
+
+    public static Binding bind(MetaList metaList, MetaOption metaOption) {
+        return bind(metaList, metaOption, new MetaLazyImpl());
+    }
+
+    public static Binding bind(MetaList metaList, MetaOption metaOption, MetaLazy metaLazy) {
+        var binding = new Binding(metaList, metaOption, metaLazy, Thread.currentThread().getContextClassLoader());
+        BINDINGS.updateAndGet(bindings -> bindings.prepend(binding));
+        return binding;
+    }
+
+    static void setDefault(MetaList metaList, MetaOption metaOption, MetaLazy metaLazy) {
+        defaultBinding = new Binding(metaList, metaOption, metaLazy, null);
+    }
+
+    static MetaList metaList() {
+        return METALIST;
+    }
+
+    static MetaOption metaOption() {
+        return METAOPTION;
+    }
+
+    static MetaLazy metaLazy() {
+        return METALAZY;
+    }
+
+    // called by every hook: a single binding needs no class loader lookup
+    private static Binding current() {
+        var bindings = BINDINGS.get();
+        if (bindings.isEmpty())
+            return defaultBinding;
+
+        if (bindings.tail().isEmpty())
+            return bindings.head();
+
+        var loader = Thread.currentThread().getContextClassLoader();
+        for (var binding : bindings)
+            if (binding.loader == loader)
+                return binding;
+
+        return bindings.head();
+    }
+
+    public static class Binding implements AutoCloseable {
+        private final MetaList metaList;
+        private final MetaOption metaOption;
+        private final MetaLazy metaLazy;
+        private final BagProvider bag;
+        private final ClassLoader loader;
+
+        private Binding(MetaList metaList, MetaOption metaOption, MetaLazy metaLazy, ClassLoader loader) {
+            this.metaList = metaList;
+            this.metaOption = metaOption;
+            this.metaLazy = metaLazy;
+            this.bag = metaList.bag();
+            this.loader = loader;
+        }
+
+        /**
+         * Unbinds, the hooks stay installed and use the previous binding of the class loader. A binding left open
+         * keeps its class loader reachable.
+         */
+        @Override
+        public void close() {
+            BINDINGS.updateAndGet(bindings -> bindings.remove(this));
+        }
+    }
+
+    private static class CurrentMetaList implements MetaList {
+        private final BagProvider bag = new BagProvider() {
+            @Override
+            public Object of(SharedSessionContractImplementor session) {
+                return current().bag.of(session);
+            }
+
+            @Override
+            public Object of(SharedSessionContractImplementor session, Collection collection) {
+                return current().bag.of(session, collection);
+            }
+
+            @Override
+            public Object ofReadOnly(Collection collection) {
+                return current().bag.ofReadOnly(collection);
+            }
+
+            @Override
+            public Object unloaded(String role) {
+                return current().bag.unloaded(role);
+            }
+        };
+
+        @Override
+        public Class monadClass() {
+            return current().metaList.monadClass();
+        }
+
+        @Override
+        public boolean isSuperClassOf(Object o) {
+            return current().metaList.isSuperClassOf(o);
+        }
+
+        @Override
+        public Object fromJava(java.util.List l) {
+            return current().metaList.fromJava(l);
+        }
+
+        @Override
+        public java.util.List toJava(Object o) {
+            return current().metaList.toJava(o);
+        }
+
+        @Override
+        public BagProvider bag() {
+            return bag;
+        }
+    }
+
+    private static class CurrentMetaOption implements MetaOption {
+        @Override
+        public Class monadClass() {
+            return current().metaOption.monadClass();
+        }
+
+        @Override
+        public boolean isSuperClassOf(Object o) {
+            return current().metaOption.isSuperClassOf(o);
+        }
+
+        @Override
+        public Object fromValue(Object v) {
+            return current().metaOption.fromValue(v);
+        }
+
+        @Override
+        public Object getOrNull(Object o) {
+            return current().metaOption.getOrNull(o);
+        }
+
+        @Override
+        public Deserializers.Base deserBase() {
+            return current().metaOption.deserBase();
+        }
+
+        @Override
+        public ReferenceTypeDeserializer deser(JavaType fullType, ValueInstantiator inst, TypeDeserializer typeDeser, JsonDeserializer deser) {
+            return current().metaOption.deser(fullType, inst, typeDeser, deser);
+        }
+
+        @Override
+        public TypeModifier typeModifier() {
+            return current().metaOption.typeModifier();
+        }
+    }
+
+    private static class CurrentMetaLazy implements MetaLazy {
+        @Override
+        public Class monadClass() {
+            return current().metaLazy.monadClass();
+        }
+
+        @Override
+        public boolean isSuperClassOf(Object o) {
+            return current().metaLazy.isSuperClassOf(o);
+        }
+
+        @Override
+        public Object fromValue(Object v) {
+            return current().metaLazy.fromValue(v);
+        }
+
+        @Override
+        public Object fromSupplier(Supplier supplier) {
+            return current().metaLazy.fromSupplier(supplier);
+        }
+
+        @Override
+        public Object get(Object o) {
+            return current().metaLazy.get(o);
+        }
+
+        @Override
+        public Supplier pendingSupplier(Object o) {
+            return current().metaLazy.pendingSupplier(o);
+        }
+    }
+}
@@ -17,35 +17,61 @@ package io.github.jleblanc64.hibernate6.hibernate;
 
 import io.github.jleblanc64.hibernate6.hibernate.duplicate.FieldCustomType;
 import io.github.jleblanc64.hibernate6.hibernate.duplicate.TypeImpl;
+import io.github.jleblanc64.hibernate6.impl.MetaLazyImpl;
 import io.github.jleblanc64.hibernate6.impl.MetaListImpl;
 import io.github.jleblanc64.hibernate6.impl.MetaOptionImpl;
 import io.github.jleblanc64.hibernate6.jackson.VavrJackson;
+import io.github.jleblanc64.hibernate6.jfr.HookEvent;
+import io.github.jleblanc64.hibernate6.meta.MetaLazy;
 import io.github.jleblanc64.hibernate6.meta.MetaList;
 import io.github.jleblanc64.hibernate6.meta.MetaOption;
 import io.github.jleblanc64.hibernate6.spring.OverrideContentType;
 import io.github.jleblanc64.hibernate6.spring.VavrSpring;
+import io.github.jleblanc64.hibernate6.spring.VavrSpringData;
+import io.github.jleblanc64.hibernate6.spring.VavrSpringWeb;
 import io.github.jleblanc64.libcustom.LibCustom;
 import lombok.SneakyThrows;
 import org.hibernate.annotations.common.reflection.XClass;
 import org.hibernate.annotations.common.reflection.java.JavaReflectionManager;
 import org.hibernate.annotations.common.reflection.java.generics.TypeEnvironment;
+import org.hibernate.bytecode.enhance.spi.LazyPropertyInitializer;
+import org.hibernate.bytecode.enhance.spi.interceptor.AbstractInterceptor;
+import org.hibernate.bytecode.internal.bytebuddy.BytecodeProviderImpl;
+import org.hibernate.collection.spi.AbstractPersistentCollection;
 import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.jpa.internal.util.PersistenceUtilHelper;
+import org.hibernate.mapping.Bag;
 import org.hibernate.metamodel.CollectionClassification;
 import org.hibernate.metamodel.internal.PluralAttributeMetadata;
 import org.hibernate.metamodel.model.domain.internal.PluralAttributeBuilder;
-import org.hibernate.persister.collection.AbstractCollectionPersister;
-import org.hibernate.type.BagType;
+import org.hibernate.property.access.spi.PropertyAccess;
+import org.hibernate.type.CollectionType;
 
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
-import static io.github.jleblanc64.hibernate6.hibernate.Utils.checkPersistentBag;
+import static io.github.jleblanc64.hibernate6.hibernate.Utils.isNativeImage;
 import static io.github.jleblanc64.hibernate6.hibernate.Utils.isOfType;
+import static io.github.jleblanc64.hibernate6.hibernate.Utils.isPresent;
 import static org.mockito.Mockito.mock;
 
 public class VavrHibernate6 {
+    private static final String SPRING_CORE = "org.springframework.core.convert.support.DefaultConversionService";
+    private static final String SPRING_DATA = "org.springframework.data.projection.DefaultMethodInvokingMethodInterceptor";
+    private static final String SPRING_WEB = "org.springframework.web.method.annotation.AbstractNamedValueMethodArgumentResolver";
+    private static final String SPRING_WEB_JACKSON = "org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter";
+
+    private static final AtomicReference<CompletableFuture<Void>> INSTALLATION = new AtomicReference<>();
+    private static final Set<String> INSTALLED_STEPS = ConcurrentHashMap.newKeySet();
+
     public static void override() {
         var metaList = new MetaListImpl();
         var metaOption = new MetaOptionImpl();
@@ -53,26 +79,127 @@ public class VavrHibernate6 {
         overrideCustom(metaList, metaOption);
     }
 
+    /**
+     * Idempotent and safe to call concurrently: hooks are installed once per JVM, by the first caller.
+     * Other callers wait for that installation to complete.
+     * <p>
+     * metaList and metaOption become the JVM wide default of the installed hooks, the last call wins.
+     * Use {@link #bind} for a binding scoped to a Spring context.
+     * <p>
+     * In a native image, no hook is installed: use the statically registered integration points instead
+     * (OptionConverters, VavrSpring.addConverters, OptionModule, ListDeser).
+     */
     public static void overrideCustom(MetaList metaList, MetaOption metaOption) {
-        overrideCustom(metaList);
-        VavrSpring.overrideCustom(metaList);
-        VavrJackson.overrideCustom(metaList);
+        overrideCustom(metaList, metaOption, new MetaLazyImpl());
+    }
+
+    public static void overrideCustom(MetaList metaList, MetaOption metaOption, MetaLazy metaLazy) {
+        VavrBindings.setDefault(metaList, metaOption, metaLazy);
+        if (!isNativeImage())
+            installOnce();
+    }
+
+    /**
+     * Installs the hooks as overrideCustom does, and binds metaList and metaOption for the context class loader
+     * of the calling thread, until the returned binding is closed. Exposed as a Spring bean, the binding is closed
+     * with its context.
+     */
+    public static VavrBindings.Binding bind(MetaList metaList, MetaOption metaOption) {
+        return bind(metaList, metaOption, new MetaLazyImpl());
+    }
+
+    public static VavrBindings.Binding bind(MetaList metaList, MetaOption metaOption, MetaLazy metaLazy) {
+        var binding = VavrBindings.bind(metaList, metaOption, metaLazy);
+        if (isNativeImage())
+            return binding;
+
+        try {
+            installOnce();
+        } catch (Throwable e) {
+            binding.close();
+            throw e;
+        }
 
-        overrideCustom(metaOption);
-        VavrSpring.overrideCustom(metaOption);
-        VavrJackson.overrideCustom(metaOption);
+        return binding;
+    }
 
-        OverrideContentType.override();
+    private static void installOnce() {
+        var installation = new CompletableFuture<Void>();
+        while (!INSTALLATION.compareAndSet(null, installation)) {
+            var current = INSTALLATION.get();
+            if (current != null) {
+                current.join();
+                return;
+            }
+        }
+
+        try {
+            install(VavrBindings.metaList(), VavrBindings.metaOption(), VavrBindings.metaLazy());
+            installation.complete(null);
+        } catch (Throwable e) {
+            // let a later call retry
+            INSTALLATION.set(null);
+            installation.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static void install(MetaList metaList, MetaOption metaOption, MetaLazy metaLazy) {
+        step("bootstrap", BootstrapPhase::override);
+        step("list", () -> overrideCustom(metaList));
+        step("option", () -> overrideCustom(metaOption, metaLazy));
+        step("queryParameters", () -> QueryParameters.overrideCustom(metaList, metaOption));
+        step("deferred", () -> DeferredAttributes.overrideCustom(metaLazy));
+
+        // integrations are only woven when the application has their target classes
+        if (isPresent(SPRING_CORE))
+            step("spring", () -> {
+                VavrSpring.overrideCustom(metaList);
+                VavrSpring.overrideCustom(metaOption);
+            });
+
+        if (isPresent(SPRING_DATA))
+            step("springData", () -> VavrSpringData.overrideCustom(metaOption));
+
+        if (isPresent(SPRING_WEB))
+            step("springWeb", () -> {
+                VavrSpringWeb.overrideCustom(metaOption);
+                OverrideContentType.override();
+            });
+
+        if (isPresent(SPRING_WEB_JACKSON))
+            step("jackson", () -> {
+                VavrJackson.overrideCustom(metaList);
+                VavrJackson.overrideCustom(metaOption);
+            });
 
         LibCustom.load();
     }
 
+    // LibCustom cannot remove a hook: a retried installation skips the steps that registered theirs
+    private static void step(String name, Runnable step) {
+        if (INSTALLED_STEPS.contains(name))
+            return;
+
+        step.run();
+        INSTALLED_STEPS.add(name);
+    }
+
     @SneakyThrows
     private static void overrideCustom(MetaList metaList) {
+        var javaXClassConstructor = Class.forName("org.hibernate.annotations.common.reflection.java.JavaXClass")
+                .getDeclaredConstructor(Class.class, TypeEnvironment.class, JavaReflectionManager.class);
+        javaXClassConstructor.setAccessible(true);
+
+        // getXProperty, determineCollectionType, PluralAttributeBuilder.build, getDefaultCollectionType and JavaXProperty.create
+        // are only needed while a metamodel is built
+        LibCustom.modifyReturn(JavaReflectionManager.class, "getXProperty", x -> HookEvent.record("JavaReflectionManager.getXProperty", () -> {
+            if (!BootstrapPhase.isActive())
+                return LibCustom.ORIGINAL;
 
-        LibCustom.modifyReturn(JavaReflectionManager.class, "getXProperty", x -> {
             var returned = x.returned;
-            var typeS = Utils.getRefl(returned, "type").toString();
+            var type = (Type) Utils.getRefl(returned, "type");
+            var typeS = type.toString();
             var env = (TypeEnvironment) Utils.getRefl(returned, "env");
             var factory = (JavaReflectionManager) Utils.getRefl(returned, "factory");
 
@@ -89,25 +216,31 @@ public class VavrHibernate6 {
                     if (name.equals("getCollectionClass"))
                         return List.class;
                     if (name.equals("getElementClass"))
-                        return buildClass(typeS, env, factory);
+                        return buildClass(javaXClassConstructor, type, env, factory);
 
 
                     return result;
                 });
 
             return LibCustom.ORIGINAL;
-        });
+        }));
 
         LibCustom.override(Class.forName("org.hibernate.metamodel.internal.PluralAttributeMetadataImpl"), "determineCollectionType",
-                args -> {
+                args -> HookEvent.record("PluralAttributeMetadataImpl.determineCollectionType", () -> {
+                    if (!BootstrapPhase.isActive())
+                        return LibCustom.ORIGINAL;
+
                     var clazz = (Class) args[0];
                     if (metaList.isSuperClassOf(clazz))
                         return CollectionClassification.LIST;
 
                     return LibCustom.ORIGINAL;
-                });
+                }));
+
+        LibCustom.modifyArg(PluralAttributeBuilder.class, "build", 0, args -> HookEvent.record("PluralAttributeBuilder.build", () -> {
+            if (!BootstrapPhase.isActive())
+                return LibCustom.ORIGINAL;
 
-        LibCustom.modifyArg(PluralAttributeBuilder.class, "build", 0, args -> {
             var attributeMetadata = (PluralAttributeMetadata) args[0];
             if (metaList.isSuperClassOf(attributeMetadata.getJavaType()))
                 return mock(attributeMetadata.getClass(), invocation -> {
@@ -123,66 +256,114 @@ public class VavrHibernate6 {
                 });
 
             return LibCustom.ORIGINAL;
-        });
-
-        LibCustom.modifyArg(Class.forName("org.hibernate.type.CollectionType"), "getElementsIterator", 0, args -> {
-            var collection = args[0];
-            if (metaList.isSuperClassOf(collection))
-                return metaList.toJava(collection);
-
-            return collection;
-        });
+        }));
 
-        var bagProvList = metaList.bag();
-        LibCustom.override(BagType.class, "instantiate", args -> {
-            if (args.length == 1)
+        // Vavr List roles get their own collection type, plain bags keep BagType
+        LibCustom.modifyReturn(Bag.class, "getDefaultCollectionType", x -> HookEvent.record("Bag.getDefaultCollectionType", () -> {
+            if (!BootstrapPhase.isActive())
                 return LibCustom.ORIGINAL;
 
-            var pers = (AbstractCollectionPersister) args[1];
-            if (isOfType(pers, metaList))
-                return checkPersistentBag(bagProvList.of((SharedSessionContractImplementor) args[0]));
+            var bagType = (CollectionType) x.returned;
+            if (isOfType(bagType.getRole(), metaList))
+                return new VavrBagType(bagType.getRole(), bagType.getLHSPropertyName(), metaList);
 
             return LibCustom.ORIGINAL;
-        });
+        }));
 
-        LibCustom.override(BagType.class, "wrap", args -> {
-            var arg1 = args[1];
-
-            if (metaList.isSuperClassOf(arg1)) {
-                var c = metaList.toJava(arg1);
-                return checkPersistentBag(bagProvList.of((SharedSessionContractImplementor) args[0], c));
-            }
+        // every bag leaves its session here, on close, clear and evict
+        LibCustom.modifyArgWithSelf(AbstractPersistentCollection.class, "unsetSession", 0, argsSelf -> HookEvent.record("AbstractPersistentCollection.unsetSession", () -> {
+            var session = (SharedSessionContractImplementor) argsSelf.args[0];
+            var bag = (AbstractPersistentCollection<?>) argsSelf.self;
+            if (session != null && bag.getSession() == session && DetachedGraph.isEnabled(session))
+                DetachedGraph.detach(bag);
 
             return LibCustom.ORIGINAL;
-        });
+        }));
     }
 
     @SneakyThrows
-    private static void overrideCustom(MetaOption<?> metaOption) {
+    private static void overrideCustom(MetaOption<?> metaOption, MetaLazy metaLazy) {
         var setterFieldImplClass = Class.forName("org.hibernate.property.access.spi.SetterFieldImpl");
         var getterFieldImplClass = Class.forName("org.hibernate.property.access.spi.GetterFieldImpl");
 
-        LibCustom.modifyArgWithSelf(setterFieldImplClass, "set", 1, argsSelf -> {
+        var setterField = setterFieldImplClass.getDeclaredField("field");
+
+        LibCustom.modifyArgWithSelf(setterFieldImplClass, "set", 1, argsSelf -> HookEvent.record("SetterFieldImpl.set", () -> {
             var args = argsSelf.args;
             var value = args[1];
             var self = argsSelf.self;
-            var field = (Field) Utils.getRefl(self, setterFieldImplClass.getDeclaredField("field"));
+            var field = (Field) Utils.getRefl(self, setterField);
 
             if (metaOption.isSuperClassOf(field.getType()) && !metaOption.isSuperClassOf(value))
                 return metaOption.fromValue(value);
 
+            // a merge copies unfetched deferred attributes as UNFETCHED_PROPERTY: the target keeps its own
+            if (metaLazy.isSuperClassOf(field.getType()) && !metaLazy.isSuperClassOf(value))
+                return value == LazyPropertyInitializer.UNFETCHED_PROPERTY ? Utils.getRefl(args[0], field) : metaLazy.fromValue(value);
+
             return LibCustom.ORIGINAL;
-        });
+        }));
 
-        LibCustom.modifyReturn(getterFieldImplClass, "get", x -> {
+        LibCustom.modifyReturn(getterFieldImplClass, "get", x -> HookEvent.record("GetterFieldImpl.get", x.returned, () -> {
             var ret = x.returned;
             if (metaOption.isSuperClassOf(ret))
                 return metaOption.getOrNull(ret);
 
+            // skipped by dirty checking and dynamic updates until loaded
+            if (metaLazy.isSuperClassOf(ret))
+                return DeferredAttributes.isUnfetched(metaLazy, ret) ? LazyPropertyInitializer.UNFETCHED_PROPERTY : metaLazy.get(ret);
+
+            return ret;
+        }));
+
+        // bytecode enhanced entities assign what their interceptor returns to the field: after loading a lazy
+        // attribute, or initializing an entity used as its own proxy, that is the unwrapped value of the getter
+        LibCustom.modifyReturn(AbstractInterceptor.class, "readObject", x -> HookEvent.record("AbstractInterceptor.readObject", x.returned, () -> {
+            var ret = x.returned;
+            if (ret == x.args[2] || metaOption.isSuperClassOf(ret) || metaLazy.isSuperClassOf(ret))
+                return ret;
+
+            var field = Utils.field(x.args[0].getClass(), (String) x.args[1]);
+            if (field == null)
+                return ret;
+
+            if (metaOption.isSuperClassOf(field.getType()))
+                return metaOption.fromValue(ret);
+
+            if (metaLazy.isSuperClassOf(field.getType()))
+                return metaLazy.fromValue(ret);
+
             return ret;
-        });
+        }));
+
+        // the reflection optimizer of a bytecode enhanced class reads and writes its fields without the getters and
+        // setters above: classes with Option or Lazy attributes go without it
+        LibCustom.override(BytecodeProviderImpl.class, "getReflectionOptimizer", args -> HookEvent.record("BytecodeProviderImpl.getReflectionOptimizer", () -> {
+            if (!(args[1] instanceof Map))
+                return LibCustom.ORIGINAL;
+
+            for (var access : ((Map<?, PropertyAccess>) args[1]).values()) {
+                var type = access.getGetter().getReturnTypeClass();
+                if (metaOption.isSuperClassOf(type) || metaLazy.isSuperClassOf(type))
+                    return null;
+            }
+
+            return LibCustom.ORIGINAL;
+        }));
+
+        // PersistenceUnitUtil.isLoaded(entity, attribute) reads the field: the load state of an Option<Entity> is the one of its proxy
+        LibCustom.modifyArg(PersistenceUtilHelper.class, "getLoadState", 0, args -> HookEvent.record("PersistenceUtilHelper.getLoadState", args[0], () -> {
+            var value = args[0];
+            if (metaOption.isSuperClassOf(value))
+                return metaOption.getOrNull(value);
+
+            return value;
+        }));
+
+        LibCustom.modifyArg(Class.forName("org.hibernate.annotations.common.reflection.java.JavaXProperty"), "create", 0, args -> HookEvent.record("JavaXProperty.create", () -> {
+            if (!BootstrapPhase.isActive())
+                return LibCustom.ORIGINAL;
 
-        LibCustom.modifyArg(Class.forName("org.hibernate.annotations.common.reflection.java.JavaXProperty"), "create", 0, args -> {
             var member = args[0];
             if (member instanceof Field) {
                 var field = (Field) member;
@@ -194,21 +375,17 @@ public class VavrHibernate6 {
                 var typeParam = type.getActualTypeArguments()[0];
                 var ownerType = ((ParameterizedType) field.getGenericType()).getOwnerType();
 
-                if (metaOption.isSuperClassOf(typeRaw))
+                if (metaOption.isSuperClassOf(typeRaw) || metaLazy.isSuperClassOf(typeRaw))
                     return FieldCustomType.create(field, new TypeImpl((Class<?>) typeParam, new Type[]{}, ownerType));
             }
 
             return LibCustom.ORIGINAL;
-        });
+        }));
     }
 
     @SneakyThrows
-    private static XClass buildClass(String typeS, TypeEnvironment env, JavaReflectionManager factory) {
-        var paramClass = Utils.paramClass(typeS);
-        var clazzJavaXClass = Class.forName("org.hibernate.annotations.common.reflection.java.JavaXClass");
-        var constructor = clazzJavaXClass.getDeclaredConstructor(Class.class, TypeEnvironment.class, JavaReflectionManager.class);
-        constructor.setAccessible(true);
-
-        return (XClass) constructor.newInstance(paramClass, env, factory);
+    private static XClass buildClass(Constructor<?> javaXClassConstructor, Type type, TypeEnvironment env, JavaReflectionManager factory) {
+        var paramClass = Utils.paramClass(env.bind(type));
+        return (XClass) javaXClassConstructor.newInstance(paramClass, env, factory);
     }
 }
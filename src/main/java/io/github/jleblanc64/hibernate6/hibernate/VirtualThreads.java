@@ -0,0 +1,37 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate6.hibernate;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Java 11 version, replaced by src/main/java21 in the multi-release jar.
+ */
+public class VirtualThreads {
+    /**
+     * @return one virtual thread per task when the JDK has them, a pool of the given size otherwise
+     */
+    public static ExecutorService newExecutor(String name, int threads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            var count = new AtomicInteger();
+            return Executors.newFixedThreadPool(threads, task -> new Thread(task, name + "-" + count.getAndIncrement()));
+        }
+    }
+}
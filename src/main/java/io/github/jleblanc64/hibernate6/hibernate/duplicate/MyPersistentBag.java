@@ -15,6 +15,8 @@
  */
 package io.github.jleblanc64.hibernate6.hibernate.duplicate;
 
+import io.github.jleblanc64.hibernate6.hibernate.ParallelDirtyCheck;
+import io.github.jleblanc64.hibernate6.jfr.CollectionEvent;
 import org.hibernate.HibernateException;
 import org.hibernate.collection.spi.AbstractPersistentCollection;
 import org.hibernate.collection.spi.CollectionSemantics;
@@ -25,6 +27,8 @@ import org.hibernate.type.Type;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 public class MyPersistentBag<E> extends AbstractPersistentCollection<E> {
 
@@ -60,7 +64,8 @@ public class MyPersistentBag<E> extends AbstractPersistentCollection<E> {
     public MyPersistentBag(SharedSessionContractImplementor session, Collection<E> coll) {
         super(session);
         providedCollection = coll;
-        if (coll instanceof List) {
+        // indexed loops (disassemble, getDeletes, get) need O(1) access, Vavr's asJava() view of a cons list is not
+        if (coll instanceof List && coll instanceof RandomAccess) {
             bag = (List<E>) coll;
         } else {
             bag = new ArrayList<>(coll);
@@ -90,6 +95,15 @@ public class MyPersistentBag<E> extends AbstractPersistentCollection<E> {
     }
 
     public void injectLoadedState(PluralAttributeMapping attributeMapping, List<?> loadingState) {
+        final CollectionEvent event = CollectionEvent.begin("injectLoadedState");
+        try {
+            doInjectLoadedState(attributeMapping, loadingState);
+        } finally {
+            event.record(getRole(), elementCount());
+        }
+    }
+
+    private void doInjectLoadedState(PluralAttributeMapping attributeMapping, List<?> loadingState) {
         assert bag == null;
 
         final CollectionPersister collectionDescriptor = attributeMapping.getCollectionDescriptor();
@@ -108,6 +122,23 @@ public class MyPersistentBag<E> extends AbstractPersistentCollection<E> {
 
     @Override
     public boolean equalsSnapshot(CollectionPersister persister) throws HibernateException {
+        final CollectionEvent event = CollectionEvent.begin("equalsSnapshot");
+        try {
+            return doEqualsSnapshot(persister);
+        } finally {
+            event.record(getRole(), elementCount());
+        }
+    }
+
+    private boolean doEqualsSnapshot(CollectionPersister persister) throws HibernateException {
+        final ForkJoinPool pool = ParallelDirtyCheck.pool(getSession(), bag.size());
+        if (pool != null) {
+            return pool.submit(() -> doEqualsSnapshot(persister, true)).join();
+        }
+        return doEqualsSnapshot(persister, false);
+    }
+
+    private boolean doEqualsSnapshot(CollectionPersister persister, boolean parallel) throws HibernateException {
         final Type elementType = persister.getElementType();
         final List<?> sn = (List<?>) getSnapshot();
         if (sn.size() != bag.size()) {
@@ -115,8 +146,8 @@ public class MyPersistentBag<E> extends AbstractPersistentCollection<E> {
         }
 
         // HHH-11032 - Group objects by Type.getHashCode() to reduce the complexity of the search
-        final Map<Integer, List<Object>> hashToInstancesBag = groupByEqualityHash(bag, elementType);
-        final Map<Integer, List<Object>> hashToInstancesSn = groupByEqualityHash(sn, elementType);
+        final Map<Integer, List<Object>> hashToInstancesBag = groupByEqualityHash(bag, elementType, parallel);
+        final Map<Integer, List<Object>> hashToInstancesSn = groupByEqualityHash(sn, elementType, parallel);
         if (hashToInstancesBag.size() != hashToInstancesSn.size()) {
             return false;
         }
@@ -137,19 +168,31 @@ public class MyPersistentBag<E> extends AbstractPersistentCollection<E> {
         // 2) the same number of values with the same hash value.
 
         // Now check if the number of occurrences of each element is the same.
+        if (parallel) {
+            return hashToInstancesBag.entrySet().parallelStream().allMatch(
+                    entry -> sameOccurrences(entry.getValue(), hashToInstancesSn.get(entry.getKey()), elementType)
+            );
+        }
         for (Map.Entry<Integer, List<Object>> hashToInstancesBagEntry : hashToInstancesBag.entrySet()) {
             final Integer hash = hashToInstancesBagEntry.getKey();
             final List<Object> instancesBag = hashToInstancesBagEntry.getValue();
             final List<Object> instancesSn = hashToInstancesSn.get(hash);
-            for (Object instance : instancesBag) {
-                if (!expectOccurrences(
-                        instance,
-                        instancesBag,
-                        elementType,
-                        countOccurrences(instance, instancesSn, elementType)
-                )) {
-                    return false;
-                }
+            if (!sameOccurrences(instancesBag, instancesSn, elementType)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean sameOccurrences(List<Object> instancesBag, List<Object> instancesSn, Type elementType) {
+        for (Object instance : instancesBag) {
+            if (!expectOccurrences(
+                    instance,
+                    instancesBag,
+                    elementType,
+                    countOccurrences(instance, instancesSn, elementType)
+            )) {
+                return false;
             }
         }
         return true;
@@ -160,10 +203,16 @@ public class MyPersistentBag<E> extends AbstractPersistentCollection<E> {
      *
      * @return Map of "equality" hashCode to List of objects
      */
-    private Map<Integer, List<Object>> groupByEqualityHash(List<?> searchedBag, Type elementType) {
+    private Map<Integer, List<Object>> groupByEqualityHash(List<?> searchedBag, Type elementType, boolean parallel) {
         if (searchedBag.isEmpty()) {
             return Collections.emptyMap();
         }
+        if (parallel) {
+            // HashMap, unlike the concurrent collectors, accepts the null key of null elements
+            return searchedBag.parallelStream().map(o -> (Object) o).collect(
+                    Collectors.groupingBy(o -> nullableHashCode(o, elementType), HashMap::new, Collectors.toList())
+            );
+        }
         Map<Integer, List<Object>> map = new HashMap<>();
         for (Object o : searchedBag) {
             map.computeIfAbsent(nullableHashCode(o, elementType), k -> new ArrayList<>()).add(o);
@@ -212,6 +261,23 @@ public class MyPersistentBag<E> extends AbstractPersistentCollection<E> {
     @Override
     public Serializable getSnapshot(CollectionPersister persister)
             throws HibernateException {
+        final CollectionEvent event = CollectionEvent.begin("getSnapshot");
+        try {
+            return doGetSnapshot(persister);
+        } finally {
+            event.record(getRole(), elementCount());
+        }
+    }
+
+    private Serializable doGetSnapshot(CollectionPersister persister) throws HibernateException {
+        final ForkJoinPool pool = ParallelDirtyCheck.pool(getSession(), bag.size());
+        if (pool != null) {
+            final Type elementType = persister.getElementType();
+            // parallel streams run in the pool of the task that starts them
+            return pool.submit(() -> bag.parallelStream()
+                    .map(item -> (E) elementType.deepCopy(item, persister.getFactory()))
+                    .collect(Collectors.toCollection(ArrayList::new))).join();
+        }
         final ArrayList<E> clonedList = new ArrayList<>(bag.size());
         for (E item : bag) {
             clonedList.add((E) persister.getElementType().deepCopy(item, persister.getFactory()));
@@ -235,6 +301,15 @@ public class MyPersistentBag<E> extends AbstractPersistentCollection<E> {
 
     @Override
     public Object disassemble(CollectionPersister persister) {
+        final CollectionEvent event = CollectionEvent.begin("disassemble");
+        try {
+            return doDisassemble(persister);
+        } finally {
+            event.record(getRole(), elementCount());
+        }
+    }
+
+    private Object doDisassemble(CollectionPersister persister) {
         final int length = bag.size();
         final Serializable[] result = new Serializable[length];
         for (int i = 0; i < length; i++) {
@@ -246,6 +321,15 @@ public class MyPersistentBag<E> extends AbstractPersistentCollection<E> {
     @Override
     public void initializeFromCache(CollectionPersister collectionDescriptor, Object disassembled, Object owner)
             throws HibernateException {
+        final CollectionEvent event = CollectionEvent.begin("initializeFromCache");
+        try {
+            doInitializeFromCache(collectionDescriptor, disassembled, owner);
+        } finally {
+            event.record(getRole(), elementCount());
+        }
+    }
+
+    private void doInitializeFromCache(CollectionPersister collectionDescriptor, Object disassembled, Object owner) throws HibernateException {
         assert bag == null;
 
         final Serializable[] array = (Serializable[]) disassembled;
@@ -276,6 +360,15 @@ public class MyPersistentBag<E> extends AbstractPersistentCollection<E> {
 
     @Override
     public Iterator<?> getDeletes(CollectionPersister persister, boolean indexIsFormula) throws HibernateException {
+        final CollectionEvent event = CollectionEvent.begin("getDeletes");
+        try {
+            return doGetDeletes(persister, indexIsFormula);
+        } finally {
+            event.record(getRole(), elementCount());
+        }
+    }
+
+    private Iterator<?> doGetDeletes(CollectionPersister persister, boolean indexIsFormula) throws HibernateException {
         final Type elementType = persister.getElementType();
         final ArrayList<Object> deletes = new ArrayList<>();
         final List<?> sn = (List<?>) getSnapshot();
@@ -333,6 +426,10 @@ public class MyPersistentBag<E> extends AbstractPersistentCollection<E> {
         return false;
     }
 
+    private int elementCount() {
+        return bag == null ? 0 : bag.size();
+    }
+
     public int size() {
         return readSize() ? getCachedSize() : bag.size();
     }
@@ -427,6 +524,18 @@ public class MyPersistentBag<E> extends AbstractPersistentCollection<E> {
         }
     }
 
+    /**
+     * Takes the elements of the collection that replaced this bag on its owner, so that the flush writes
+     * the difference with the snapshot instead of removing and recreating the whole collection.
+     */
+    public void replaceElements(Collection<? extends E> elements, CollectionPersister persister) {
+        initialize(true);
+        bag = new ArrayList<>(elements);
+        if (getStoredSnapshot() == null || !equalsSnapshot(persister)) {
+            dirty();
+        }
+    }
+
     public void clear() {
         if (isClearQueueEnabled()) {
             queueOperation(new Clear());
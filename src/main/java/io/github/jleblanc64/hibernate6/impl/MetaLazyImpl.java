@@ -0,0 +1,57 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate6.impl;
+
+import io.github.jleblanc64.hibernate6.hibernate.Utils;
+import io.github.jleblanc64.hibernate6.meta.MetaLazy;
+import io.vavr.Lazy;
+
+import java.util.function.Supplier;
+
+public class MetaLazyImpl implements MetaLazy<Lazy> {
+    @Override
+    public Class<Lazy> monadClass() {
+        return Lazy.class;
+    }
+
+    @Override
+    public Lazy<?> fromValue(Object v) {
+        var lazy = Lazy.of(() -> v);
+        lazy.get();
+        return lazy;
+    }
+
+    @Override
+    public Lazy<?> fromSupplier(Supplier<?> supplier) {
+        return Lazy.of(supplier);
+    }
+
+    @Override
+    public Object get(Lazy lazy) {
+        return lazy.get();
+    }
+
+    // Lazy clears its supplier once evaluated, while holding its monitor
+    @Override
+    public Supplier<?> pendingSupplier(Lazy lazy) {
+        if (lazy.isEvaluated())
+            return null;
+
+        synchronized (lazy) {
+            return (Supplier<?>) Utils.getRefl(lazy, "supplier");
+        }
+    }
+}
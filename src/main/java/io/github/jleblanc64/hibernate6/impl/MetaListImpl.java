@@ -51,6 +51,17 @@ public class MetaListImpl implements MetaList<List> {
             public PersistentBagImpl of(SharedSessionContractImplementor session, Collection<?> collection) {
                 return new PersistentBagImpl(session, collection);
             }
+
+            @Override
+            public List ofReadOnly(Collection<?> collection) {
+                // copies, List.ofAll would hand back the bag behind an asJava view
+                return List.ofAll(collection.stream());
+            }
+
+            @Override
+            public List unloaded(String role) {
+                return new UnloadedList(role);
+            }
         };
     }
 }
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate6.impl;
+
+import io.vavr.control.Option;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * JPA converters for Option basic attributes, that need no hook: {@code @Convert(converter = OptionConverters.OfString.class)}
+ * <p>
+ * For native images, where the hooks installed by VavrHibernate6 cannot run. Do not mix with the hooks in the same JVM,
+ * they already unwrap Option attributes.
+ */
+public class OptionConverters {
+    public abstract static class OptionAttributeConverter<T> implements AttributeConverter<Option<T>, T> {
+        @Override
+        public T convertToDatabaseColumn(Option<T> attribute) {
+            return attribute == null ? null : attribute.getOrNull();
+        }
+
+        @Override
+        public Option<T> convertToEntityAttribute(T dbData) {
+            return Option.of(dbData);
+        }
+    }
+
+    @Converter
+    public static class OfString extends OptionAttributeConverter<String> {
+    }
+
+    @Converter
+    public static class OfInteger extends OptionAttributeConverter<Integer> {
+    }
+
+    @Converter
+    public static class OfLong extends OptionAttributeConverter<Long> {
+    }
+
+    @Converter
+    public static class OfBoolean extends OptionAttributeConverter<Boolean> {
+    }
+
+    @Converter
+    public static class OfDouble extends OptionAttributeConverter<Double> {
+    }
+
+    @Converter
+    public static class OfBigDecimal extends OptionAttributeConverter<BigDecimal> {
+    }
+
+    @Converter
+    public static class OfLocalDate extends OptionAttributeConverter<LocalDate> {
+    }
+
+    @Converter
+    public static class OfLocalDateTime extends OptionAttributeConverter<LocalDateTime> {
+    }
+
+    @Converter
+    public static class OfInstant extends OptionAttributeConverter<Instant> {
+    }
+
+    @Converter
+    public static class OfUUID extends OptionAttributeConverter<UUID> {
+    }
+}
@@ -43,16 +43,19 @@ public class PersistentBagImpl extends MyPersistentBag implements io.vavr.collec
 
     @Override
     public List tail() {
+        read();
         return List.ofAll(bag).tail();
     }
 
     @Override
     public Object apply(Object o) {
+        read();
         return ((PartialFunction) List.ofAll(bag)).apply(o);
     }
 
     @Override
     public boolean isDefinedAt(Object value) {
+        read();
         return ((PartialFunction) List.ofAll(bag)).isDefinedAt(value);
     }
 }
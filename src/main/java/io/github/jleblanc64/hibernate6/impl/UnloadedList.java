@@ -0,0 +1,78 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate6.impl;
+
+import io.github.jleblanc64.hibernate6.meta.Unloaded;
+import io.vavr.collection.List;
+import org.hibernate.LazyInitializationException;
+
+import java.io.Serializable;
+
+/**
+ * Vavr List left in place of a bag that was not loaded when its entity was detached.
+ * Any access to its elements throws, Jackson writes it as null.
+ */
+public class UnloadedList implements List, Unloaded, Serializable {
+    private final String role;
+
+    public UnloadedList(String role) {
+        this.role = role;
+    }
+
+    @Override
+    public String role() {
+        return role;
+    }
+
+    @Override
+    public Object head() {
+        throw unloaded();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        throw unloaded();
+    }
+
+    @Override
+    public int length() {
+        throw unloaded();
+    }
+
+    @Override
+    public List tail() {
+        throw unloaded();
+    }
+
+    @Override
+    public Object apply(Object o) {
+        throw unloaded();
+    }
+
+    @Override
+    public boolean isDefinedAt(Object value) {
+        throw unloaded();
+    }
+
+    @Override
+    public String toString() {
+        return "UnloadedList(" + role + ")";
+    }
+
+    private LazyInitializationException unloaded() {
+        return new LazyInitializationException("collection was not loaded before being detached: " + role);
+    }
+}
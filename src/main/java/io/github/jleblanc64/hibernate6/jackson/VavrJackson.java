@@ -15,6 +15,7 @@
  */
 package io.github.jleblanc64.hibernate6.jackson;
 
+import io.github.jleblanc64.hibernate6.jfr.HookEvent;
 import io.github.jleblanc64.hibernate6.meta.MetaList;
 import io.github.jleblanc64.hibernate6.meta.MetaOption;
 import io.github.jleblanc64.libcustom.LibCustom;
@@ -26,7 +27,7 @@ import static io.github.jleblanc64.libcustom.FieldMocked.*;
 
 public class VavrJackson {
     public static void overrideCustom(MetaList metaList) {
-        LibCustom.modifyReturn(AbstractJackson2HttpMessageConverter.class, "readJavaType", argsR -> {
+        LibCustom.modifyReturn(AbstractJackson2HttpMessageConverter.class, "readJavaType", argsR -> HookEvent.record("AbstractJackson2HttpMessageConverter.readJavaType(List)", argsR.returned, () -> {
             var returned = argsR.returned;
             if (returned == null)
                 return returned;
@@ -45,11 +46,11 @@ public class VavrJackson {
             });
 
             return returned;
-        });
+        }));
     }
 
     public static void overrideCustom(MetaOption metaOption) {
-        LibCustom.modifyReturn(AbstractJackson2HttpMessageConverter.class, "readJavaType", argsR -> {
+        LibCustom.modifyReturn(AbstractJackson2HttpMessageConverter.class, "readJavaType", argsR -> HookEvent.record("AbstractJackson2HttpMessageConverter.readJavaType(Option)", argsR.returned, () -> {
             var returned = argsR.returned;
             if (returned == null)
                 return returned;
@@ -68,6 +69,6 @@ public class VavrJackson {
             });
 
             return returned;
-        });
+        }));
     }
 }
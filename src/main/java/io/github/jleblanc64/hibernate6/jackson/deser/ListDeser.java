@@ -21,9 +21,11 @@ import com.fasterxml.jackson.databind.ser.std.StdDelegatingSerializer;
 import com.fasterxml.jackson.databind.util.Converter;
 import com.fasterxml.jackson.databind.util.StdConverter;
 import io.github.jleblanc64.hibernate6.meta.MetaList;
+import io.github.jleblanc64.hibernate6.meta.Unloaded;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 public class ListDeser {
     public static class Serializer<T> extends StdDelegatingSerializer {
@@ -31,7 +33,8 @@ public class ListDeser {
             super(new StdConverter<T, Collection<?>>() {
                 @Override
                 public Collection<?> convert(T value) {
-                    return metaList.toJava(value);
+                    // an Unloaded marker is written as null, and skipped with JsonInclude.Include.NON_EMPTY
+                    return value instanceof Unloaded ? null : metaList.toJava(value);
                 }
             });
         }
@@ -47,7 +50,8 @@ public class ListDeser {
             super(new StdConverter<Collection<?>, T>() {
                 @Override
                 public T convert(Collection<?> value) {
-                    return metaList.fromJava(new ArrayList<>(value));
+                    // Jackson deserializes the delegate to a fresh ArrayList, no need to copy it
+                    return metaList.fromJava(value instanceof List ? (List<?>) value : new ArrayList<>(value));
                 }
             });
         }
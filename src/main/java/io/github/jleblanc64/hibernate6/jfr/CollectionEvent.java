@@ -0,0 +1,66 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate6.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * JFR event for one lifecycle step of a MyPersistentBag: injectLoadedState, getSnapshot, equalsSnapshot...
+ * <p>
+ * Disabled by default, enable io.github.jleblanc64.hibernate6.Collection in the recording settings.
+ */
+@Name("io.github.jleblanc64.hibernate6.Collection")
+@Label("Vavr Collection")
+@Category("Vavr Hibernate 6")
+@Description("Lifecycle step of a Vavr persistent collection")
+@Enabled(false)
+@StackTrace(false)
+public class CollectionEvent extends Event {
+    private static final EventType TYPE = EventType.getEventType(CollectionEvent.class);
+    // returned while disabled, never begun nor committed
+    private static final CollectionEvent DISABLED = new CollectionEvent();
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Role")
+    String role;
+
+    @Label("Element Count")
+    int elementCount;
+
+    public static CollectionEvent begin(String operation) {
+        if (!TYPE.isEnabled())
+            return DISABLED;
+
+        var event = new CollectionEvent();
+        event.operation = operation;
+        event.begin();
+        return event;
+    }
+
+    public void record(String role, int elementCount) {
+        if (this == DISABLED)
+            return;
+
+        end();
+        if (shouldCommit()) {
+            this.role = role;
+            this.elementCount = elementCount;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate6.jfr;
+
+import io.github.jleblanc64.libcustom.LibCustom;
+import jdk.jfr.*;
+
+/**
+ * JFR event for one invocation of a hook installed by VavrHibernate6, VavrSpring or VavrJackson.
+ * <p>
+ * Disabled by default, enable io.github.jleblanc64.hibernate6.Hook in the recording settings.
+ */
+@Name("io.github.jleblanc64.hibernate6.Hook")
+@Label("Vavr Hook")
+@Category("Vavr Hibernate 6")
+@Description("Invocation of a LibCustom hook")
+@Enabled(false)
+@StackTrace(false)
+public class HookEvent extends Event {
+    private static final EventType TYPE = EventType.getEventType(HookEvent.class);
+
+    @Label("Hook")
+    String hook;
+
+    @Label("Original")
+    @Description("The hook let the original call or value through")
+    boolean original;
+
+    public interface Body {
+        Object call() throws Exception;
+    }
+
+    /**
+     * @return true while a recording has the event enabled, without allocating an event
+     */
+    public static boolean enabled() {
+        return TYPE.isEnabled();
+    }
+
+    public static Object record(String hook, Body body) throws Exception {
+        return record(hook, LibCustom.ORIGINAL, body);
+    }
+
+    /**
+     * Small enough to inline into each hook: while disabled, no event is allocated and escape analysis can remove the body.
+     *
+     * @param unchanged value the hook returns when it does not modify anything, besides LibCustom.ORIGINAL
+     */
+    public static Object record(String hook, Object unchanged, Body body) throws Exception {
+        if (!enabled())
+            return body.call();
+
+        return recordEnabled(hook, unchanged, body);
+    }
+
+    private static Object recordEnabled(String hook, Object unchanged, Body body) throws Exception {
+        var event = new HookEvent();
+        event.begin();
+        var result = body.call();
+        event.end();
+
+        if (event.shouldCommit()) {
+            event.hook = hook;
+            event.original = result == LibCustom.ORIGINAL || result == unchanged;
+            event.commit();
+        }
+
+        return result;
+    }
+}
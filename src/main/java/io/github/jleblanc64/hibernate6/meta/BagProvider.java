@@ -23,4 +23,20 @@ public interface BagProvider<Bag> {
     Bag of(SharedSessionContractImplementor session);
 
     Bag of(SharedSessionContractImplementor session, Collection<?> collection);
+
+    /**
+     * Used by ReadOnlyHydration: plain immutable collection replacing an initialized bag of a read-only entity.
+     * Null keeps the bag.
+     */
+    default Object ofReadOnly(Collection<?> collection) {
+        return null;
+    }
+
+    /**
+     * Used by DetachedGraph: value, implementing {@link Unloaded}, replacing a bag that was not loaded
+     * before being detached. Null keeps the bag.
+     */
+    default Object unloaded(String role) {
+        return null;
+    }
 }
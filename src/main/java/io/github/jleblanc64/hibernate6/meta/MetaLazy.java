@@ -0,0 +1,37 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate6.meta;
+
+import java.util.function.Supplier;
+
+public interface MetaLazy<T> extends WithClass<T> {
+    /**
+     * @return instance already evaluated to v
+     */
+    T fromValue(Object v);
+
+    /**
+     * @return instance evaluated by supplier on its first access
+     */
+    T fromSupplier(Supplier<?> supplier);
+
+    Object get(T t);
+
+    /**
+     * @return supplier of an instance not evaluated yet, null once evaluated
+     */
+    Supplier<?> pendingSupplier(T t);
+}
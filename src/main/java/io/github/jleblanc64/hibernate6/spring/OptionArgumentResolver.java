@@ -0,0 +1,74 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate6.spring;
+
+import io.github.jleblanc64.hibernate6.meta.MetaOption;
+import org.springframework.core.MethodParameter;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resolves Option typed request params, path variables, headers... by wrapping the value
+ * resolved by the delegate.
+ * <p>
+ * Spring caches the resolver per MethodParameter, so supportsParameter runs once per handler
+ * method parameter and non-Option parameters never reach this class.
+ */
+public class OptionArgumentResolver implements HandlerMethodArgumentResolver {
+    private final MetaOption<?> metaOption;
+    private final HandlerMethodArgumentResolver delegate;
+
+    public OptionArgumentResolver(MetaOption<?> metaOption, HandlerMethodArgumentResolver delegate) {
+        this.metaOption = metaOption;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return metaOption.isSuperClassOf(parameter.getParameterType()) && delegate.supportsParameter(parameter);
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) throws Exception {
+        var resolved = delegate.resolveArgument(parameter, mavContainer, webRequest, binderFactory);
+        if (metaOption.isSuperClassOf(resolved))
+            return resolved;
+
+        return metaOption.fromValue(resolved);
+    }
+
+    /**
+     * @return resolvers, with an OptionArgumentResolver inserted in front of each resolver of the given class
+     */
+    public static List<HandlerMethodArgumentResolver> wrap(List<? extends HandlerMethodArgumentResolver> resolvers,
+                                                           Class<?> delegateClass, MetaOption<?> metaOption) {
+        var wrapped = new ArrayList<HandlerMethodArgumentResolver>(resolvers.size());
+        for (var resolver : resolvers) {
+            if (delegateClass.isInstance(resolver))
+                wrapped.add(new OptionArgumentResolver(metaOption, resolver));
+
+            wrapped.add(resolver);
+        }
+
+        return wrapped;
+    }
+}
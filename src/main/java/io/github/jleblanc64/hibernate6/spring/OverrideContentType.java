@@ -15,6 +15,7 @@
  */
 package io.github.jleblanc64.hibernate6.spring;
 
+import io.github.jleblanc64.hibernate6.jfr.HookEvent;
 import io.github.jleblanc64.libcustom.LibCustom;
 import lombok.SneakyThrows;
 
@@ -24,12 +25,12 @@ public class OverrideContentType {
         // accept text/plain content-type as json
         var httpHeadersClass = Class.forName("org.springframework.http.HttpHeaders");
         var mediaTypeClass = Class.forName("org.springframework.http.MediaType");
-        LibCustom.modifyReturn(httpHeadersClass, "getContentType", argsR -> {
+        LibCustom.modifyReturn(httpHeadersClass, "getContentType", argsR -> HookEvent.record("HttpHeaders.getContentType", argsR.returned, () -> {
             var mediaType = argsR.returned;
             if (mediaType != null && mediaType.toString().toLowerCase().startsWith("text/plain"))
                 return mediaTypeClass.getMethod("parseMediaType", String.class).invoke(null, "application/json");
 
             return mediaType;
-        });
+        }));
     }
 }
@@ -17,94 +17,78 @@ package io.github.jleblanc64.hibernate6.spring;
 
 import io.github.jleblanc64.hibernate6.hibernate.Utils;
 import io.github.jleblanc64.hibernate6.hibernate.duplicate.ParameterizedTypeImpl;
+import io.github.jleblanc64.hibernate6.jfr.HookEvent;
 import io.github.jleblanc64.hibernate6.meta.MetaList;
 import io.github.jleblanc64.hibernate6.meta.MetaOption;
+import io.github.jleblanc64.hibernate6.spring.convert.ListConverter;
+import io.github.jleblanc64.hibernate6.spring.convert.OptionConverter;
 import io.github.jleblanc64.libcustom.LibCustom;
-import lombok.SneakyThrows;
 import org.springframework.core.MethodParameter;
+import org.springframework.core.convert.ConversionService;
 import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.core.convert.converter.ConverterRegistry;
+import org.springframework.core.convert.support.DefaultConversionService;
 import org.springframework.core.convert.support.GenericConversionService;
-import org.springframework.data.projection.DefaultMethodInvokingMethodInterceptor;
 
-import java.util.ArrayList;
-import java.util.Collection;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.Optional;
 
 public class VavrSpring {
-    @SneakyThrows
-    public static void overrideCustom(MetaList metaList) {
-        LibCustom.override(GenericConversionService.class, "convert", args -> {
-            if (args == null || args.length != 3)
-                return LibCustom.ORIGINAL;
-
-            if (!(args[2] instanceof TypeDescriptor))
-                return LibCustom.ORIGINAL;
-
-            var targetType = (TypeDescriptor) args[2];
-            if (!metaList.isSuperClassOf(targetType.getObjectType()))
-                return LibCustom.ORIGINAL;
+    // Optional<Entity>, null for non entity classes
+    private static final ClassValue<Type> OPTIONAL_ENTITY_TYPES = new ClassValue<>() {
+        @Override
+        protected Type computeValue(Class<?> type) {
+            return Utils.isEntity(type.getDeclaredAnnotations()) ? ParameterizedTypeImpl.of(Optional.class, type, null) : null;
+        }
+    };
 
-            var source = args[0];
-            if (!(source instanceof Collection))
-                return LibCustom.ORIGINAL;
-
-            return metaList.fromJava(new ArrayList<>((Collection) source));
-        });
+    public static void overrideCustom(MetaList metaList) {
+        // registered once per conversion service, after the defaults, Spring caches the converter per TypeDescriptor pair
+        LibCustom.modifyReturn(DefaultConversionService.class, "addDefaultConverters", x -> HookEvent.record("DefaultConversionService.addDefaultConverters", () -> {
+            addConverters((ConverterRegistry) x.args[0], metaList);
+            return LibCustom.ORIGINAL;
+        }));
     }
 
-    @SneakyThrows
     public static void overrideCustom(MetaOption metaOption) {
-        LibCustom.modifyReturn(MethodParameter.class, "getGenericParameterType", argsR -> {
-            var returned = argsR.returned.toString();
-            if (returned.startsWith(metaOption.monadClass().getName() + "<")) {
-                var paramClass = Utils.paramClass(returned);
-                var isEntity = Utils.isEntity(paramClass.getDeclaredAnnotations());
-                if (isEntity)
-                    return ParameterizedTypeImpl.of(Optional.class, paramClass, null);
-            }
-
+        LibCustom.modifyReturn(DefaultConversionService.class, "addDefaultConverters", x -> HookEvent.record("DefaultConversionService.addDefaultConverters", () -> {
+            addConverters((ConverterRegistry) x.args[0], metaOption);
             return LibCustom.ORIGINAL;
-        });
+        }));
 
-        LibCustom.modifyReturn(DefaultMethodInvokingMethodInterceptor.class, "invoke", argsR -> {
-            var returned = argsR.returned;
-            var invocation = argsR.args[0];
+        // null sources never reach the converters
+        LibCustom.override(GenericConversionService.class, "convertNullSource", args -> HookEvent.record("GenericConversionService.convertNullSource", () -> {
+            var targetType = (TypeDescriptor) args[1];
+            if (metaOption.isSuperClassOf(targetType.getObjectType()))
+                return metaOption.fromValue(null);
 
-            if (invocation.toString().contains(metaOption.monadClass().getName())) {
-                if (metaOption.isSuperClassOf(returned))
-                    return returned;
-
-                var o = (Optional<?>) returned;
-                var v = o == null || o.isEmpty() ? null : o.get();
-                return metaOption.fromValue(v);
-            }
-
-            return returned;
-        });
-
-        // request params
-        var methodParameterClass = Class.forName("org.springframework.core.MethodParameter");
-        var argResolverClass = Class.forName("org.springframework.web.method.annotation.AbstractNamedValueMethodArgumentResolver");
+            return LibCustom.ORIGINAL;
+        }));
 
-        LibCustom.modifyReturn(argResolverClass, "resolveArgument", argsRet -> {
-            var args = argsRet.args;
-            var returned = argsRet.returned;
-            var type = methodParameterClass.getMethod("getParameterType").invoke(args[0]);
+        LibCustom.modifyReturn(MethodParameter.class, "getGenericParameterType", argsR -> HookEvent.record("MethodParameter.getGenericParameterType", () -> {
+            if (!(argsR.returned instanceof ParameterizedType))
+                return LibCustom.ORIGINAL;
 
-            if (metaOption.isSuperClassOf(type) && !metaOption.isSuperClassOf(returned))
-                return metaOption.fromValue(returned);
+            var returned = (ParameterizedType) argsR.returned;
+            if (returned.getRawType() != metaOption.monadClass())
+                return LibCustom.ORIGINAL;
 
-            return returned;
-        });
+            var param = returned.getActualTypeArguments()[0];
+            if (!(param instanceof Class))
+                return LibCustom.ORIGINAL;
 
-        LibCustom.modifyArg(Class.forName("org.springframework.beans.TypeConverterDelegate"), "doConvertValue", 1, args -> {
-            var newValue = args[1];
-            var requiredType = (Class<?>) args[2];
+            var optionalType = OPTIONAL_ENTITY_TYPES.get((Class<?>) param);
+            return optionalType != null ? optionalType : LibCustom.ORIGINAL;
+        }));
+    }
 
-            if (metaOption.isSuperClassOf(requiredType))
-                return metaOption.fromValue(newValue);
+    public static void addConverters(ConverterRegistry registry, MetaList metaList) {
+        registry.addConverter(new ListConverter(metaList));
+    }
 
-            return LibCustom.ORIGINAL;
-        });
+    public static void addConverters(ConverterRegistry registry, MetaOption metaOption) {
+        var conversionService = registry instanceof ConversionService ? (ConversionService) registry : null;
+        registry.addConverter(new OptionConverter(metaOption, conversionService));
     }
 }
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate6.spring;
+
+import io.github.jleblanc64.hibernate6.jfr.HookEvent;
+import io.github.jleblanc64.hibernate6.meta.MetaOption;
+import io.github.jleblanc64.libcustom.LibCustom;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.data.projection.DefaultMethodInvokingMethodInterceptor;
+
+import java.util.Optional;
+
+public class VavrSpringData {
+    public static void overrideCustom(MetaOption metaOption) {
+        LibCustom.modifyReturn(DefaultMethodInvokingMethodInterceptor.class, "invoke", argsR -> HookEvent.record("DefaultMethodInvokingMethodInterceptor.invoke", argsR.returned, () -> {
+            var returned = argsR.returned;
+            var invocation = (MethodInvocation) argsR.args[0];
+
+            if (metaOption.monadClass().isAssignableFrom(invocation.getMethod().getReturnType())) {
+                if (metaOption.isSuperClassOf(returned))
+                    return returned;
+
+                var o = (Optional<?>) returned;
+                var v = o == null || o.isEmpty() ? null : o.get();
+                return metaOption.fromValue(v);
+            }
+
+            return returned;
+        }));
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate6.spring;
+
+import io.github.jleblanc64.hibernate6.jfr.HookEvent;
+import io.github.jleblanc64.hibernate6.meta.MetaOption;
+import io.github.jleblanc64.libcustom.LibCustom;
+import lombok.SneakyThrows;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.HandlerMethodArgumentResolverComposite;
+
+import java.util.List;
+
+public class VavrSpringWeb {
+    @SneakyThrows
+    public static void overrideCustom(MetaOption metaOption) {
+        // request params, the resolver is picked once per handler method parameter
+        var namedValueResolverClass = Class.forName("org.springframework.web.method.annotation.AbstractNamedValueMethodArgumentResolver");
+        LibCustom.modifyArg(HandlerMethodArgumentResolverComposite.class, "addResolvers", 0, args -> HookEvent.record("HandlerMethodArgumentResolverComposite.addResolvers", () -> {
+            if (!(args[0] instanceof List))
+                return LibCustom.ORIGINAL;
+
+            var resolvers = (List<? extends HandlerMethodArgumentResolver>) args[0];
+            return OptionArgumentResolver.wrap(resolvers, namedValueResolverClass, metaOption);
+        }));
+    }
+}
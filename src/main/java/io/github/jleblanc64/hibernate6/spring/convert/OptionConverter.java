@@ -0,0 +1,73 @@
+/*
+ * Copyright 2024 - Charles Dabadie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.jleblanc64.hibernate6.spring.convert;
+
+import io.github.jleblanc64.hibernate6.meta.MetaOption;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.core.convert.converter.ConditionalGenericConverter;
+
+import java.util.Set;
+
+/**
+ * Converts any value to the option type of a {@link MetaOption}, converting it first to the
+ * option's element type when the target declares one.
+ * <p>
+ * Same approach as Spring's own ObjectToOptionalConverter.
+ */
+public class OptionConverter implements ConditionalGenericConverter {
+    private final MetaOption<?> metaOption;
+    private final ConversionService conversionService;
+
+    public OptionConverter(MetaOption<?> metaOption, ConversionService conversionService) {
+        this.metaOption = metaOption;
+        this.conversionService = conversionService;
+    }
+
+    @Override
+    public Set<ConvertiblePair> getConvertibleTypes() {
+        return Set.of(new ConvertiblePair(Object.class, metaOption.monadClass()));
+    }
+
+    @Override
+    public boolean matches(TypeDescriptor sourceType, TypeDescriptor targetType) {
+        if (metaOption.isSuperClassOf(sourceType.getObjectType()))
+            return false;
+
+        var elementType = elementType(targetType);
+        return elementType == null || conversionService == null || conversionService.canConvert(sourceType, elementType);
+    }
+
+    @Override
+    public Object convert(Object source, TypeDescriptor sourceType, TypeDescriptor targetType) {
+        if (source == null)
+            return metaOption.fromValue(null);
+
+        var elementType = elementType(targetType);
+        if (elementType == null || conversionService == null)
+            return metaOption.fromValue(source);
+
+        return metaOption.fromValue(conversionService.convert(source, sourceType, elementType));
+    }
+
+    private static TypeDescriptor elementType(TypeDescriptor targetType) {
+        var generic = targetType.getResolvableType().getGeneric(0);
+        if (generic.resolve() == null)
+            return null;
+
+        return new TypeDescriptor(generic, null, targetType.getAnnotations());
+    }
+}
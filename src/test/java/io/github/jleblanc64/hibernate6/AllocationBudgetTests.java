@@ -0,0 +1,199 @@
+package io.github.jleblanc64.hibernate6;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import io.github.jleblanc64.hibernate6.entity.Customer;
+import io.github.jleblanc64.hibernate6.entity.Order;
+import io.github.jleblanc64.hibernate6.hibernate.VavrHibernate6;
+import io.github.jleblanc64.hibernate6.impl.MetaListImpl;
+import io.github.jleblanc64.hibernate6.impl.MetaOptionImpl;
+import io.github.jleblanc64.hibernate6.jackson.deser.ListDeser;
+import io.github.jleblanc64.hibernate6.jackson.deser.OptionModule;
+import io.github.jleblanc64.hibernate6.spring.OptionArgumentResolver;
+import io.vavr.collection.List;
+import io.vavr.control.Option;
+import lombok.SneakyThrows;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.metamodel.mapping.AttributeMapping;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledIfSystemProperty;
+import org.junit.jupiter.api.condition.DisabledInNativeImage;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.core.MethodParameter;
+import org.springframework.data.projection.DefaultMethodInvokingMethodInterceptor;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Bytes allocated per operation on the hot paths, checked against src/test/resources/allocation-budgets.properties.
+ * <p>
+ * Run with -Dallocation.print=true to print the measured values, when re-baselining the budgets. The budgets are
+ * measured on the plain test entities: mvn -Penhanced test skips them.
+ */
+@DisabledInNativeImage
+@DisabledIfSystemProperty(named = "vavr.enhanced", matches = "true")
+public class AllocationBudgetTests {
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 10_000;
+    // hibernate sessions are orders of magnitude more expensive than the other operations
+    private static final int SESSION_WARMUP = 500;
+    private static final int SESSION_ITERATIONS = 200;
+
+    private static final Properties BUDGETS = budgets();
+
+    private static volatile Object sink;
+
+    @Test
+    public void optionProperty() {
+        VavrHibernate6.override();
+        try (var sessionFactory = H2.configuration("allocOption", Customer.class, Order.class).buildSessionFactory()) {
+            var name = attribute(sessionFactory, "name");
+            var getter = name.getPropertyAccess().getGetter();
+            var setter = name.getPropertyAccess().getSetter();
+
+            var customer = new Customer();
+            customer.setName(Option.of("c"));
+
+            assertWithinBudget("option.get", bytesPerOp(WARMUP, ITERATIONS, () -> getter.get(customer)));
+            assertWithinBudget("option.set", bytesPerOp(WARMUP, ITERATIONS, () -> {
+                setter.set(customer, "c");
+                return customer;
+            }));
+        }
+    }
+
+    @Test
+    public void collectionLoadAndFlush() {
+        VavrHibernate6.override();
+        try (var sessionFactory = H2.configuration("allocCollection", Customer.class, Order.class).buildSessionFactory()) {
+            var customer = new Customer();
+            customer.setName(Option.of("c"));
+            customer.setOrders(List.range(0, 100).map(i -> Order.of("o" + i)));
+            sessionFactory.inTransaction(session -> session.persist(customer));
+
+            assertWithinBudget("collection.load", bytesPerOp(SESSION_WARMUP, SESSION_ITERATIONS, () ->
+                    sessionFactory.fromTransaction(session -> session.get(Customer.class, customer.getId()).getOrders().size())));
+
+            // flush of an unchanged, initialized bag: snapshot comparison only
+            sessionFactory.inTransaction(session -> {
+                session.get(Customer.class, customer.getId()).getOrders().size();
+                assertWithinBudget("collection.flush", bytesPerOp(SESSION_WARMUP, SESSION_ITERATIONS, () -> {
+                    session.flush();
+                    return session;
+                }));
+            });
+        }
+    }
+
+    @Test
+    public void json() throws Exception {
+        var metaList = new MetaListImpl();
+        var om = new ObjectMapper();
+        om.registerModule(new OptionModule(new MetaOptionImpl()));
+        om.registerModule(new SimpleModule()
+                .addSerializer(metaList.monadClass(), new ListDeser.Serializer(metaList))
+                .addDeserializer(metaList.monadClass(), new ListDeser.Deserializer(metaList)));
+
+        var customer = new Customer();
+        customer.setId(1L);
+        customer.setName(Option.of("c"));
+        customer.setOrders(List.range(0, 10).map(i -> Order.of("o" + i)));
+        var json = om.writeValueAsString(customer);
+
+        assertWithinBudget("json.serialize", bytesPerOp(WARMUP, ITERATIONS, () -> om.writeValueAsString(customer)));
+        assertWithinBudget("json.deserialize", bytesPerOp(WARMUP, ITERATIONS, () -> om.readValue(json, Customer.class)));
+    }
+
+    @Test
+    public void springArgument() throws Exception {
+        VavrHibernate6.override();
+        var parameter = new MethodParameter(Handler.class.getMethod("handle", Option.class), 0);
+        var resolver = new OptionArgumentResolver(new MetaOptionImpl(), new HandlerMethodArgumentResolver() {
+            @Override
+            public boolean supportsParameter(MethodParameter parameter) {
+                return true;
+            }
+
+            @Override
+            public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                          NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+                return "c";
+            }
+        });
+
+        assertWithinBudget("spring.parameterType", bytesPerOp(WARMUP, ITERATIONS, parameter::getGenericParameterType));
+        assertWithinBudget("spring.resolveArgument", bytesPerOp(WARMUP, ITERATIONS, () -> resolver.resolveArgument(parameter, null, null, null)));
+    }
+
+    @Test
+    public void springData() {
+        VavrHibernate6.override();
+        var factory = new ProxyFactory();
+        factory.setInterfaces(Projection.class);
+        factory.addAdvice(new DefaultMethodInvokingMethodInterceptor());
+        var projection = (Projection) factory.getProxy();
+
+        assertEquals(Option.of("c"), projection.name());
+        assertWithinBudget("springData.invoke", bytesPerOp(WARMUP, ITERATIONS, projection::name));
+    }
+
+    public interface Projection {
+        default Option<String> name() {
+            return Option.of("c");
+        }
+    }
+
+    public interface Handler {
+        void handle(Option<Customer> customer);
+    }
+
+    private static AttributeMapping attribute(org.hibernate.SessionFactory sessionFactory, String name) {
+        return sessionFactory.unwrap(SessionFactoryImplementor.class).getMappingMetamodel()
+                .getEntityDescriptor(Customer.class).findAttributeMapping(name);
+    }
+
+    @SneakyThrows
+    private static long bytesPerOp(int warmup, int iterations, Callable<?> op) {
+        for (var i = 0; i < warmup; i++)
+            sink = op.call();
+
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        var thread = Thread.currentThread().getId();
+        var before = threads.getThreadAllocatedBytes(thread);
+        for (var i = 0; i < iterations; i++)
+            sink = op.call();
+
+        return (threads.getThreadAllocatedBytes(thread) - before) / iterations;
+    }
+
+    private static void assertWithinBudget(String operation, long bytes) {
+        if (Boolean.getBoolean("allocation.print"))
+            System.out.println(operation + "=" + bytes);
+
+        var budget = BUDGETS.getProperty(operation);
+        assertTrue(budget != null, "No allocation budget for " + operation);
+        assertTrue(bytes <= Long.parseLong(budget), operation + " allocates " + bytes + " bytes per op, budget is " + budget);
+    }
+
+    private static Properties budgets() {
+        var properties = new Properties();
+        try (var in = AllocationBudgetTests.class.getResourceAsStream("/allocation-budgets.properties")) {
+            properties.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return properties;
+    }
+}
@@ -0,0 +1,21 @@
+package io.github.jleblanc64.hibernate6;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+
+public class H2 {
+    public static SessionFactory sessionFactory(String db, Class<?>... entities) {
+        return configuration(db, entities).buildSessionFactory();
+    }
+
+    public static Configuration configuration(String db, Class<?>... entities) {
+        var conf = new Configuration();
+        conf.setProperty(AvailableSettings.JAKARTA_JDBC_URL, "jdbc:h2:mem:" + db + ";DB_CLOSE_DELAY=-1");
+        conf.setProperty(AvailableSettings.HBM2DDL_AUTO, "create-drop");
+        for (var entity : entities)
+            conf.addAnnotatedClass(entity);
+
+        return conf;
+    }
+}
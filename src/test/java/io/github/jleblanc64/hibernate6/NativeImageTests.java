@@ -0,0 +1,30 @@
+package io.github.jleblanc64.hibernate6;
+
+import io.github.jleblanc64.hibernate6.entity.NativeCustomer;
+import io.github.jleblanc64.hibernate6.hibernate.VavrHibernate6;
+import io.vavr.control.Option;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledInNativeImage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// run with mvn -Pnative test
+@EnabledInNativeImage
+public class NativeImageTests {
+    @Test
+    public void bootHibernateWithOptionAttributes() {
+        // no hook is installed in a native image
+        VavrHibernate6.override();
+
+        try (var sessionFactory = H2.sessionFactory("native", NativeCustomer.class)) {
+            var customer = new NativeCustomer();
+            customer.setName(Option.of("name"));
+            customer.setAge(Option.none());
+            sessionFactory.inTransaction(session -> session.persist(customer));
+
+            var loaded = sessionFactory.fromSession(session -> session.get(NativeCustomer.class, customer.getId()));
+            assertEquals(Option.of("name"), loaded.getName());
+            assertEquals(Option.none(), loaded.getAge());
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package io.github.jleblanc64.hibernate6;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import io.github.jleblanc64.hibernate6.entity.Customer;
+import io.github.jleblanc64.hibernate6.entity.Order;
+import io.github.jleblanc64.hibernate6.hibernate.ListReplacement;
+import io.github.jleblanc64.hibernate6.hibernate.VavrHibernate6;
+import io.github.jleblanc64.hibernate6.impl.MetaListImpl;
+import io.github.jleblanc64.hibernate6.impl.MetaOptionImpl;
+import io.github.jleblanc64.hibernate6.jackson.deser.ListDeser;
+import io.github.jleblanc64.hibernate6.jackson.deser.OptionModule;
+import io.vavr.collection.List;
+import io.vavr.control.Option;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledInNativeImage;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Thousands of tasks persisting, loading, flushing and serializing Vavr entities.
+ * Fails on any jdk.VirtualThreadPinned event with a frame of the library on its stack, and on any contended
+ * jdk.JavaMonitorEnter on a monitor the library entered.
+ */
+@DisabledInNativeImage
+public class VirtualThreadPinningTests {
+    private static final int TASKS = 10_000;
+    // on platform threads, enough to contend on every shared monitor
+    private static final int CONTENTION_TASKS = 2_000;
+    // connections, tasks wait on the semaphore instead of inside the pool
+    private static final int CONNECTIONS = 32;
+    private static final java.util.List<String> LIBRARY = java.util.List.of(
+            "io.github.jleblanc64.hibernate6.hibernate.", "io.github.jleblanc64.hibernate6.impl.",
+            "io.github.jleblanc64.hibernate6.jackson.", "io.github.jleblanc64.hibernate6.spring.",
+            "io.github.jleblanc64.hibernate6.jfr.", "io.github.jleblanc64.libcustom.");
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    public void noPinning() throws Exception {
+        var pinned = run("pinning", TASKS, virtualThreads(), "jdk.VirtualThreadPinned", VirtualThreadPinningTests::inLibrary);
+        assertTrue(pinned.isEmpty(), "Pinned virtual threads:\n" + String.join("\n", pinned));
+    }
+
+    // platform threads, contended monitors pin virtual threads the same way until JDK 24
+    @Test
+    public void noMonitorContention() throws Exception {
+        var contended = run("contention", CONTENTION_TASKS, Executors.newFixedThreadPool(CONNECTIONS * 2), "jdk.JavaMonitorEnter",
+                VirtualThreadPinningTests::enteredByLibrary);
+        assertTrue(contended.isEmpty(), "Contended monitors:\n" + String.join("\n", contended));
+    }
+
+    /**
+     * @return stack traces of the events of type matching filter
+     */
+    private static java.util.List<String> run(String db, int tasks, ExecutorService executor, String eventType, Predicate<RecordedEvent> filter)
+            throws Exception {
+        VavrHibernate6.override();
+        var conf = H2.configuration(db, Customer.class, Order.class);
+        conf.setProperty(AvailableSettings.POOL_SIZE, String.valueOf(CONNECTIONS));
+        conf.setProperty(ListReplacement.SETTING, "true");
+
+        var metaList = new MetaListImpl();
+        var om = new ObjectMapper();
+        om.registerModule(new OptionModule(new MetaOptionImpl()));
+        om.registerModule(new SimpleModule().addSerializer(metaList.monadClass(), new ListDeser.Serializer(metaList)));
+
+        var file = Files.createTempFile(db, ".jfr");
+        try (var sessionFactory = conf.buildSessionFactory(); var recording = new Recording()) {
+            recording.enable(eventType).withThreshold(Duration.ZERO).withStackTrace();
+            recording.start();
+
+            var connections = new Semaphore(CONNECTIONS);
+            var results = new ArrayList<Future<String>>();
+            try {
+                for (var i = 0; i < tasks; i++) {
+                    var name = "c" + i;
+                    results.add(executor.submit(() -> {
+                        connections.acquire();
+                        try {
+                            var customer = new Customer();
+                            customer.setName(Option.of(name));
+                            customer.setOrders(List.of(Order.of("a"), Order.of("b")));
+                            sessionFactory.inTransaction(session -> session.persist(customer));
+
+                            return sessionFactory.fromTransaction(session -> {
+                                var loaded = session.get(Customer.class, customer.getId());
+                                loaded.setName(Option.of(name + "!"));
+                                loaded.setOrders(loaded.getOrders().append(Order.of("c")));
+                                session.flush();
+                                return writeJson(om, loaded);
+                            });
+                        } finally {
+                            connections.release();
+                        }
+                    }));
+                }
+
+                for (var result : results)
+                    assertTrue(result.get(5, TimeUnit.MINUTES).contains("!"));
+            } finally {
+                executor.shutdownNow();
+            }
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        var events = new ArrayList<String>();
+        for (var event : RecordingFile.readAllEvents(file))
+            if (event.getEventType().getName().equals(eventType) && filter.test(event))
+                events.add(event.getStackTrace().toString());
+
+        Files.delete(file);
+        return events;
+    }
+
+    // the top frame holds the contended synchronized block or method
+    private static boolean enteredByLibrary(RecordedEvent event) {
+        var stackTrace = event.getStackTrace();
+        if (stackTrace == null || stackTrace.getFrames().isEmpty())
+            return false;
+
+        var className = stackTrace.getFrames().get(0).getMethod().getType().getName();
+        return LIBRARY.stream().anyMatch(className::startsWith);
+    }
+
+    private static boolean inLibrary(RecordedEvent event) {
+        var stackTrace = event.getStackTrace();
+        return stackTrace != null && stackTrace.getFrames().stream()
+                .map(frame -> frame.getMethod().getType().getName())
+                .anyMatch(className -> LIBRARY.stream().anyMatch(className::startsWith));
+    }
+
+    private static String writeJson(ObjectMapper om, Object o) {
+        try {
+            return om.writeValueAsString(o);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // the tests compile for Java 11
+    private static ExecutorService virtualThreads() throws ReflectiveOperationException {
+        return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    }
+}
@@ -0,0 +1,19 @@
+package io.github.jleblanc64.hibernate6.entity;
+
+import io.vavr.collection.List;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+@Entity
+@Getter
+@Setter
+public class Album {
+    @Id
+    @GeneratedValue
+    private Long id;
+
+    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
+    @JoinColumn(name = "album_id")
+    private List<Track> tracks;
+}
@@ -0,0 +1,27 @@
+package io.github.jleblanc64.hibernate6.entity;
+
+import io.vavr.control.Option;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+@Entity
+@Getter
+@Setter
+public class Comment {
+    @Id
+    @GeneratedValue
+    private Long id;
+
+    private Option<String> text;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    private Post post;
+
+    public static Comment of(Post post, String text) {
+        var comment = new Comment();
+        comment.setPost(post);
+        comment.setText(Option.of(text));
+        return comment;
+    }
+}
@@ -0,0 +1,22 @@
+package io.github.jleblanc64.hibernate6.entity;
+
+import io.vavr.collection.List;
+import io.vavr.control.Option;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+@Entity
+@Getter
+@Setter
+public class Customer {
+    @Id
+    @GeneratedValue
+    private Long id;
+
+    private Option<String> name;
+
+    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
+    @JoinColumn(name = "customer_id")
+    private List<Order> orders;
+}
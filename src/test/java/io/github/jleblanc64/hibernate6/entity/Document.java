@@ -0,0 +1,31 @@
+package io.github.jleblanc64.hibernate6.entity;
+
+import io.vavr.Lazy;
+import io.vavr.control.Option;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Lob;
+import lombok.Getter;
+import lombok.Setter;
+
+@Entity
+@Getter
+@Setter
+public class Document {
+    @Id
+    @GeneratedValue
+    private Long id;
+
+    private Option<String> title;
+
+    @Lob
+    private Lazy<String> body;
+
+    public static Document of(String title, String body) {
+        var document = new Document();
+        document.setTitle(Option.of(title));
+        document.setBody(Lazy.of(() -> body));
+        return document;
+    }
+}
@@ -0,0 +1,27 @@
+package io.github.jleblanc64.hibernate6.entity;
+
+import io.vavr.control.Option;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+@Entity
+@Getter
+@Setter
+public class Invoice {
+    @Id
+    @GeneratedValue
+    private Long id;
+
+    private Option<String> number;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    private Option<Customer> customer;
+
+    public static Invoice of(Customer customer, String number) {
+        var invoice = new Invoice();
+        invoice.setCustomer(Option.of(customer));
+        invoice.setNumber(Option.of(number));
+        return invoice;
+    }
+}
@@ -0,0 +1,25 @@
+package io.github.jleblanc64.hibernate6.entity;
+
+import io.github.jleblanc64.hibernate6.impl.OptionConverters;
+import io.vavr.control.Option;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import lombok.Getter;
+import lombok.Setter;
+
+@Entity
+@Getter
+@Setter
+public class NativeCustomer {
+    @Id
+    @GeneratedValue
+    private Long id;
+
+    @Convert(converter = OptionConverters.OfString.class)
+    private Option<String> name;
+
+    @Convert(converter = OptionConverters.OfInteger.class)
+    private Option<Integer> age;
+}
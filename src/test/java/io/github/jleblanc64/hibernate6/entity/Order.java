@@ -0,0 +1,27 @@
+package io.github.jleblanc64.hibernate6.entity;
+
+import io.vavr.control.Option;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+@Entity
+@Table(name = "orders")
+@Getter
+@Setter
+public class Order {
+    @Id
+    @GeneratedValue
+    private Long id;
+
+    private Option<String> label;
+
+    public static Order of(String label) {
+        var order = new Order();
+        order.setLabel(Option.of(label));
+        return order;
+    }
+}
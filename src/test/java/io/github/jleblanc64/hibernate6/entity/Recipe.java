@@ -0,0 +1,21 @@
+package io.github.jleblanc64.hibernate6.entity;
+
+import io.vavr.collection.List;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import lombok.Getter;
+import lombok.Setter;
+
+@Entity
+@Getter
+@Setter
+public class Recipe {
+    @Id
+    @GeneratedValue
+    private Long id;
+
+    @ElementCollection
+    private List<String> steps;
+}
@@ -0,0 +1,31 @@
+package io.github.jleblanc64.hibernate6.entity;
+
+import io.vavr.collection.List;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.Embedded;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import lombok.Getter;
+import lombok.Setter;
+
+@Entity
+@Getter
+@Setter
+public class Shipment {
+    @Id
+    @GeneratedValue
+    private Long id;
+
+    @Embedded
+    private Route route;
+
+    @Embeddable
+    @Getter
+    @Setter
+    public static class Route {
+        @ElementCollection
+        private List<String> stops;
+    }
+}
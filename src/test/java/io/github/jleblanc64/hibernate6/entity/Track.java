@@ -0,0 +1,25 @@
+package io.github.jleblanc64.hibernate6.entity;
+
+import io.vavr.control.Option;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import lombok.Getter;
+import lombok.Setter;
+
+@Entity
+@Getter
+@Setter
+public class Track {
+    @Id
+    @GeneratedValue
+    private Long id;
+
+    private Option<String> title;
+
+    public static Track of(String title) {
+        var track = new Track();
+        track.setTitle(Option.of(title));
+        return track;
+    }
+}
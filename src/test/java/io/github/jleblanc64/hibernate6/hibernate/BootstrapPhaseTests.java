@@ -0,0 +1,31 @@
+package io.github.jleblanc64.hibernate6.hibernate;
+
+import io.github.jleblanc64.hibernate6.H2;
+import io.github.jleblanc64.hibernate6.entity.Customer;
+import io.github.jleblanc64.hibernate6.entity.Order;
+import jakarta.persistence.Entity;
+import org.hibernate.AnnotationException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledInNativeImage;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisabledInNativeImage
+public class BootstrapPhaseTests {
+    @Test
+    public void failedBuild() {
+        VavrHibernate6.override();
+        assertThrows(AnnotationException.class, () -> H2.sessionFactory("bootstrapPhaseFailed", NoId.class));
+        assertFalse(BootstrapPhase.isActive());
+
+        try (var sessionFactory = H2.sessionFactory("bootstrapPhase", Customer.class, Order.class)) {
+            assertFalse(BootstrapPhase.isActive());
+        }
+    }
+
+    @Entity
+    public static class NoId {
+        String name;
+    }
+}
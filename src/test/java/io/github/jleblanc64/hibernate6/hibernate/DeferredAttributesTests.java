@@ -0,0 +1,153 @@
+package io.github.jleblanc64.hibernate6.hibernate;
+
+import io.github.jleblanc64.hibernate6.H2;
+import io.github.jleblanc64.hibernate6.entity.Document;
+import io.vavr.Lazy;
+import io.vavr.control.Option;
+import org.hibernate.LazyInitializationException;
+import org.hibernate.QueryException;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledInNativeImage;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisabledInNativeImage
+public class DeferredAttributesTests {
+    private final List<String> sql = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void deferred() {
+        try (var sessionFactory = sessionFactory("deferred", 1)) {
+            var document = Document.of("a", "body a");
+            sessionFactory.inTransaction(session -> session.persist(document));
+
+            sessionFactory.inTransaction(session -> {
+                sql.clear();
+                var loaded = session.get(Document.class, document.getId());
+                assertFalse(loaded.getBody().isEvaluated());
+                assertEquals(1, count("select"));
+                assertFalse(sql.get(0).contains("body"));
+
+                assertEquals("body a", loaded.getBody().get());
+                assertEquals(2, count("select"));
+                assertTrue(sql.get(1).contains("body"));
+            });
+            // the loaded body is not dirty
+            assertEquals(0, count("update"));
+
+            sessionFactory.inTransaction(session -> {
+                sql.clear();
+                session.get(Document.class, document.getId()).setTitle(Option.of("b"));
+            });
+            // dynamic update, without the body that was never loaded
+            assertEquals(1, count("update"));
+            assertFalse(sql.stream().anyMatch(s -> s.startsWith("update") && s.contains("body")));
+
+            sessionFactory.inTransaction(session -> session.get(Document.class, document.getId()).setBody(Lazy.of(() -> "body b")));
+            sessionFactory.inTransaction(session -> {
+                var loaded = session.get(Document.class, document.getId());
+                assertEquals(Option.of("b"), loaded.getTitle());
+                assertEquals("body b", loaded.getBody().get());
+            });
+
+            var detached = sessionFactory.fromTransaction(session -> session.get(Document.class, document.getId()));
+            assertThrows(LazyInitializationException.class, () -> detached.getBody().get());
+        }
+    }
+
+    @Test
+    public void batch() {
+        try (var sessionFactory = sessionFactory("deferredBatch", 10)) {
+            sessionFactory.inTransaction(session -> {
+                for (var i = 0; i < 3; i++)
+                    session.persist(Document.of("t" + i, "body " + i));
+            });
+
+            sessionFactory.inTransaction(session -> {
+                sql.clear();
+                var documents = session.createSelectionQuery("from Document d order by d.id", Document.class).getResultList();
+                assertEquals(1, count("select"));
+
+                assertEquals("body 0", documents.get(0).getBody().get());
+                assertEquals("body 1", documents.get(1).getBody().get());
+                assertEquals("body 2", documents.get(2).getBody().get());
+                assertEquals(2, count("select"));
+            });
+        }
+    }
+
+    @Test
+    public void detached() {
+        try (var sessionFactory = sessionFactory("deferredDetached", 10)) {
+            sessionFactory.inTransaction(session -> {
+                for (var i = 0; i < 3; i++)
+                    session.persist(Document.of("t" + i, "body " + i));
+            });
+
+            sessionFactory.inTransaction(session -> {
+                var documents = session.createSelectionQuery("from Document d order by d.id", Document.class).getResultList();
+                session.evict(documents.get(0));
+                session.detach(documents.get(1));
+
+                // the batch skips the detached documents
+                sql.clear();
+                assertEquals("body 2", documents.get(2).getBody().get());
+                assertTrue(sql.get(0).contains("in (?)"), sql.get(0));
+
+                session.createSelectionQuery("from Document d", Document.class).getResultList();
+                session.clear();
+                var document = session.get(Document.class, documents.get(0).getId());
+                sql.clear();
+                assertEquals("body 0", document.getBody().get());
+                assertTrue(sql.get(0).contains("in (?)"), sql.get(0));
+            });
+        }
+    }
+
+    @Test
+    public void notLoaded() {
+        try (var sessionFactory = sessionFactory("deferredNotLoaded", 1)) {
+            var document = Document.of("a", "body a");
+            sessionFactory.inTransaction(session -> session.persist(document));
+
+            // no post load for a StatelessSession: fails instead of reading null
+            var stateless = sessionFactory.fromStatelessSession(session -> session.get(Document.class, document.getId()));
+            assertEquals(Option.of("a"), stateless.getTitle());
+            assertThrows(LazyInitializationException.class, () -> stateless.getBody().get());
+
+            var exported = new CopyOnWriteArrayList<Document>();
+            ParallelExport.export(sessionFactory, Document.class, exported::add);
+            assertThrows(LazyInitializationException.class, () -> exported.get(0).getBody().get());
+
+            sessionFactory.inTransaction(session -> {
+                assertThrows(QueryException.class, () -> session.createSelectionQuery("select d.body from Document d", String.class).getResultList());
+                assertThrows(QueryException.class, () -> session.createSelectionQuery("from Document d where d.body = 'body a'", Document.class).getResultList());
+                assertEquals(1, session.createSelectionQuery("from Document d where d.title = 'a'", Document.class).getResultList().size());
+            });
+        }
+    }
+
+    private SessionFactory sessionFactory(String db, int batchSize) {
+        VavrHibernate6.override();
+        var conf = H2.configuration(db, Document.class);
+        conf.setProperty(DeferredAttributes.BATCH_SIZE, String.valueOf(batchSize));
+        conf.setStatementInspector(statement -> {
+            sql.add(statement.toLowerCase(Locale.ROOT));
+            return statement;
+        });
+
+        return conf.buildSessionFactory();
+    }
+
+    private long count(String kind) {
+        return sql.stream().filter(statement -> statement.trim().startsWith(kind)).count();
+    }
+}
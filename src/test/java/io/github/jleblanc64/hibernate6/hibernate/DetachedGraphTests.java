@@ -0,0 +1,121 @@
+package io.github.jleblanc64.hibernate6.hibernate;
+
+import io.github.jleblanc64.hibernate6.H2;
+import io.github.jleblanc64.hibernate6.entity.Customer;
+import io.github.jleblanc64.hibernate6.entity.Order;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import io.github.jleblanc64.hibernate6.entity.Shipment;
+import io.github.jleblanc64.hibernate6.impl.MetaListImpl;
+import io.github.jleblanc64.hibernate6.impl.MetaOptionImpl;
+import io.github.jleblanc64.hibernate6.jackson.deser.ListDeser;
+import io.github.jleblanc64.hibernate6.jackson.deser.OptionModule;
+import io.vavr.collection.List;
+import org.apache.commons.lang3.SerializationUtils;
+import io.vavr.control.Option;
+import org.hibernate.LazyInitializationException;
+import org.hibernate.SessionFactory;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledInNativeImage;
+
+import java.io.Serializable;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisabledInNativeImage
+public class DetachedGraphTests {
+    @Test
+    public void materialize() {
+        VavrHibernate6.override();
+        try (var sessionFactory = H2.sessionFactory("materialize", Customer.class, Order.class)) {
+            var id = persist(sessionFactory);
+
+            var loaded = sessionFactory.fromSession(session -> {
+                var customer = session.get(Customer.class, id);
+                customer.getOrders().size();
+                return customer;
+            });
+            assertTrue(loaded.getOrders() instanceof PersistentCollection);
+
+            DetachedGraph.materialize(loaded);
+            assertFalse(loaded.getOrders() instanceof PersistentCollection);
+            assertEquals(List.of("a", "b"), loaded.getOrders().map(o -> o.getLabel().get()));
+
+            var attached = sessionFactory.fromSession(session -> {
+                var customer = session.get(Customer.class, id);
+                assertThrows(IllegalStateException.class, () -> DetachedGraph.materialize(customer));
+                return customer;
+            });
+            assertNotNull(attached);
+        }
+    }
+
+    @Test
+    public void materializeOnDetach() throws Exception {
+        VavrHibernate6.override();
+        var conf = H2.configuration("materializeOnDetach", Customer.class, Order.class);
+        conf.setProperty(DetachedGraph.SETTING, "true");
+
+        try (var sessionFactory = conf.buildSessionFactory()) {
+            var id = persist(sessionFactory);
+
+            var loaded = sessionFactory.fromSession(session -> {
+                var customer = session.get(Customer.class, id);
+                customer.getOrders().size();
+                return customer;
+            });
+            assertFalse(loaded.getOrders() instanceof PersistentCollection);
+            assertEquals(2, loaded.getOrders().size());
+
+            var unloaded = sessionFactory.fromSession(session -> session.get(Customer.class, id));
+            assertFalse(DetachedGraph.isLoaded(unloaded.getOrders()));
+            assertThrows(LazyInitializationException.class, () -> unloaded.getOrders().size());
+            assertEquals(unloaded.getOrders().toString(), SerializationUtils.clone((Serializable) unloaded.getOrders()).toString());
+
+            var om = new ObjectMapper().addMixIn(Customer.class, NonEmpty.class)
+                    .registerModule(new OptionModule(new MetaOptionImpl()))
+                    .registerModule(new SimpleModule().addSerializer(List.class, new ListDeser.Serializer<>(new MetaListImpl())));
+            assertEquals("{\"id\":" + id + ",\"name\":\"c\"}", om.writeValueAsString(unloaded));
+
+            // merge keeps the rows of an unloaded collection
+            sessionFactory.inTransaction(session -> session.merge(unloaded));
+            int merged = sessionFactory.fromSession(session -> session.get(Customer.class, id).getOrders().size());
+            assertEquals(2, merged);
+        }
+    }
+
+    @Test
+    public void materializeEmbeddable() {
+        VavrHibernate6.override();
+        try (var sessionFactory = H2.sessionFactory("materializeEmbeddable", Shipment.class)) {
+            var shipment = new Shipment();
+            shipment.setRoute(new Shipment.Route());
+            shipment.getRoute().setStops(List.of("a", "b"));
+            sessionFactory.inTransaction(session -> session.persist(shipment));
+
+            var loaded = sessionFactory.fromSession(session -> {
+                var s = session.get(Shipment.class, shipment.getId());
+                s.getRoute().getStops().size();
+                return s;
+            });
+
+            DetachedGraph.materialize(loaded);
+            assertFalse(loaded.getRoute().getStops() instanceof PersistentCollection);
+            assertEquals(List.of("a", "b"), loaded.getRoute().getStops());
+        }
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private interface NonEmpty {
+    }
+
+    private static Long persist(SessionFactory sessionFactory) {
+        var customer = new Customer();
+        customer.setName(Option.of("c"));
+        customer.setOrders(List.of(Order.of("a"), Order.of("b")));
+        sessionFactory.inTransaction(session -> session.persist(customer));
+        return customer.getId();
+    }
+}
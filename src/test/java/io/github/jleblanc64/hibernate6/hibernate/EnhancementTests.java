@@ -0,0 +1,109 @@
+package io.github.jleblanc64.hibernate6.hibernate;
+
+import io.github.jleblanc64.hibernate6.H2;
+import io.github.jleblanc64.hibernate6.entity.Customer;
+import io.github.jleblanc64.hibernate6.entity.Invoice;
+import io.github.jleblanc64.hibernate6.entity.Order;
+import io.vavr.collection.List;
+import io.vavr.control.Option;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.PersistentAttributeInterceptable;
+import org.hibernate.engine.spi.SelfDirtinessTracker;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledInNativeImage;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Run by mvn -Penhanced test, which enhances the test entities: the other tests run the same suite against them.
+ */
+@DisabledInNativeImage
+@EnabledIfSystemProperty(named = "vavr.enhanced", matches = "true")
+public class EnhancementTests {
+    private final java.util.List<String> sql = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void enhanced() {
+        assertTrue(SelfDirtinessTracker.class.isAssignableFrom(Customer.class));
+        assertTrue(PersistentAttributeInterceptable.class.isAssignableFrom(Invoice.class));
+    }
+
+    @Test
+    public void dirtyTracking() {
+        try (var sessionFactory = sessionFactory("enhancedDirtyTracking")) {
+            var customer = customer("c");
+            sessionFactory.inTransaction(session -> session.persist(customer));
+
+            sessionFactory.inTransaction(session -> {
+                var loaded = session.get(Customer.class, customer.getId());
+                loaded.setOrders(loaded.getOrders().append(Order.of("c")));
+                session.flush();
+                // the bag writes the new order, the replaced List is no change of the customer row
+                assertFalse(sql.stream().anyMatch(s -> s.toLowerCase(Locale.ROOT).startsWith("update customer")));
+
+                // the other tracked changes are kept
+                loaded.setOrders(loaded.getOrders().append(Order.of("d")));
+                loaded.setName(Option.of("d"));
+                var tracker = (SelfDirtinessTracker) loaded;
+                assertEquals(Set.of("orders", "name"), Set.of(tracker.$$_hibernate_getDirtyAttributes()));
+                ListReplacement.untrack(loaded, "orders");
+                assertEquals(java.util.List.of("name"), Arrays.asList(tracker.$$_hibernate_getDirtyAttributes()));
+            });
+
+            sessionFactory.inTransaction(session -> {
+                var loaded = session.get(Customer.class, customer.getId());
+                assertEquals(Option.of("d"), loaded.getName());
+                assertEquals(List.of("a", "b", "c", "d"), loaded.getOrders().map(o -> o.getLabel().get()));
+            });
+        }
+    }
+
+    @Test
+    public void lazyToOne() {
+        try (var sessionFactory = sessionFactory("enhancedLazyToOne")) {
+            var customer = customer("c");
+            var invoice = Invoice.of(customer, "a");
+            sessionFactory.inTransaction(session -> {
+                session.persist(customer);
+                session.persist(invoice);
+            });
+
+            sessionFactory.inTransaction(session -> {
+                var loaded = session.get(Invoice.class, invoice.getId());
+                var reference = loaded.getCustomer().get();
+                assertFalse(Hibernate.isInitialized(reference));
+
+                // initializes the customer through its interceptor
+                assertEquals(Option.of("c"), reference.getName());
+                assertEquals(Option.of("a"), loaded.getNumber());
+            });
+        }
+    }
+
+    private SessionFactory sessionFactory(String db) {
+        VavrHibernate6.override();
+        var conf = H2.configuration(db, Customer.class, Order.class, Invoice.class);
+        conf.setProperty(ListReplacement.SETTING, "true");
+        conf.setStatementInspector(s -> {
+            sql.add(s);
+            return s;
+        });
+        return conf.buildSessionFactory();
+    }
+
+    private static Customer customer(String name) {
+        var customer = new Customer();
+        customer.setName(Option.of(name));
+        customer.setOrders(List.of(Order.of("a"), Order.of("b")));
+        return customer;
+    }
+}
@@ -0,0 +1,45 @@
+package io.github.jleblanc64.hibernate6.hibernate;
+
+import io.github.jleblanc64.hibernate6.hibernate.duplicate.MyPersistentBag;
+import io.vavr.collection.List;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.RandomAccess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MyPersistentBagTests {
+    @Test
+    public void copy() {
+        // sequential sources are copied to an ArrayList
+        var view = List.of("a", "b").asJava();
+        assertFalse(view instanceof RandomAccess);
+        assertCopied(view);
+        assertCopied(new LinkedList<>(java.util.List.of("a", "b")));
+
+        // a RandomAccess java.util.List is the backing store
+        var arrayList = new ArrayList<>(java.util.List.of("a", "b"));
+        var bag = new MyPersistentBag<>(null, arrayList);
+        assertTrue(bag.isWrapper(arrayList));
+        assertTrue(bag.isDirectlyProvidedCollection(arrayList));
+        assertEquals(java.util.List.of("a", "b"), elements(bag));
+    }
+
+    private static void assertCopied(Collection<String> source) {
+        var bag = new MyPersistentBag<>(null, source);
+        assertFalse(bag.isWrapper(source));
+        assertTrue(bag.isDirectlyProvidedCollection(source));
+        assertEquals(java.util.List.of("a", "b"), elements(bag));
+    }
+
+    private static java.util.List<Object> elements(MyPersistentBag<?> bag) {
+        var list = new ArrayList<Object>();
+        bag.entries(null).forEachRemaining(list::add);
+        return list;
+    }
+}
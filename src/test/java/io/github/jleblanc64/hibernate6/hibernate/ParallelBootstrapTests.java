@@ -0,0 +1,60 @@
+package io.github.jleblanc64.hibernate6.hibernate;
+
+import io.github.jleblanc64.hibernate6.H2;
+import io.github.jleblanc64.hibernate6.entity.Customer;
+import io.github.jleblanc64.hibernate6.entity.Order;
+import io.vavr.collection.List;
+import io.vavr.control.Option;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledInNativeImage;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DisabledInNativeImage
+public class ParallelBootstrapTests {
+    private static final int FACTORIES = 32;
+
+    @Test
+    public void parallelBootstrap() throws Exception {
+        var pool = Executors.newFixedThreadPool(FACTORIES);
+        var start = new CountDownLatch(1);
+        try {
+            var results = new ArrayList<Future<String>>();
+            for (var i = 0; i < FACTORIES; i++) {
+                var db = "tenant" + i;
+                results.add(pool.submit(() -> {
+                    start.await();
+                    VavrHibernate6.override();
+                    try (var sessionFactory = H2.sessionFactory(db, Customer.class, Order.class)) {
+                        return roundTrip(sessionFactory, db);
+                    }
+                }));
+            }
+
+            start.countDown();
+            for (var i = 0; i < FACTORIES; i++)
+                assertEquals("tenant" + i + ":2", results.get(i).get(2, TimeUnit.MINUTES));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static String roundTrip(SessionFactory sessionFactory, String name) {
+        var customer = new Customer();
+        customer.setName(Option.of(name));
+        customer.setOrders(List.of(Order.of("a"), Order.of("b")));
+        sessionFactory.inTransaction(session -> session.persist(customer));
+
+        return sessionFactory.fromSession(session -> {
+            var loaded = session.get(Customer.class, customer.getId());
+            return loaded.getName().get() + ":" + loaded.getOrders().size();
+        });
+    }
+}
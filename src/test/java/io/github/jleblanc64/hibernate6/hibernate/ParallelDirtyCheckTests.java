@@ -0,0 +1,56 @@
+package io.github.jleblanc64.hibernate6.hibernate;
+
+import io.github.jleblanc64.hibernate6.H2;
+import io.github.jleblanc64.hibernate6.entity.Customer;
+import io.github.jleblanc64.hibernate6.entity.Order;
+import io.vavr.collection.List;
+import io.vavr.control.Option;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledInNativeImage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisabledInNativeImage
+public class ParallelDirtyCheckTests {
+    @Test
+    public void parallel() {
+        VavrHibernate6.override();
+        var conf = H2.configuration("parallelDirtyCheck", Customer.class, Order.class);
+        conf.setProperty(ParallelDirtyCheck.SETTING, "10");
+        conf.setProperty(ListReplacement.SETTING, "true");
+        conf.setProperty(AvailableSettings.GENERATE_STATISTICS, "true");
+
+        try (var sessionFactory = conf.buildSessionFactory()) {
+            var customer = new Customer();
+            customer.setName(Option.of("c"));
+            customer.setOrders(List.range(0, 1000).map(i -> Order.of("o" + (i % 100))));
+            sessionFactory.inTransaction(session -> session.persist(customer));
+
+            var statistics = sessionFactory.getStatistics();
+            statistics.clear();
+            sessionFactory.inTransaction(session -> {
+                var pool = ParallelDirtyCheck.pool((SessionImplementor) session, 1000);
+                assertNull(ParallelDirtyCheck.pool((SessionImplementor) session, 9));
+
+                session.get(Customer.class, customer.getId()).getOrders().size();
+                session.flush();
+                // the snapshots and the comparison ran on the workers of the pool, idle otherwise
+                assertTrue(pool.getPoolSize() > 0);
+            });
+            assertEquals(0, statistics.getCollectionUpdateCount());
+
+            sessionFactory.inTransaction(session -> {
+                var loaded = session.get(Customer.class, customer.getId());
+                loaded.setOrders(loaded.getOrders().tail());
+            });
+            assertEquals(1, statistics.getCollectionUpdateCount() + statistics.getCollectionRecreateCount());
+
+            var size = sessionFactory.fromSession(session -> session.get(Customer.class, customer.getId()).getOrders().size());
+            assertEquals(999, (int) size);
+        }
+    }
+}
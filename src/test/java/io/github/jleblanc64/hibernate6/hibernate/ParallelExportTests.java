@@ -0,0 +1,42 @@
+package io.github.jleblanc64.hibernate6.hibernate;
+
+import io.github.jleblanc64.hibernate6.H2;
+import io.github.jleblanc64.hibernate6.entity.Customer;
+import io.github.jleblanc64.hibernate6.entity.Order;
+import io.vavr.collection.List;
+import io.vavr.control.Option;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledInNativeImage;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@DisabledInNativeImage
+public class ParallelExportTests {
+    @Test
+    public void export() {
+        VavrHibernate6.override();
+        try (var sessionFactory = H2.sessionFactory("parallelExport", Customer.class, Order.class)) {
+            var customers = List.range(0, 50).map(i -> {
+                var customer = new Customer();
+                customer.setName(Option.of("c" + i));
+                customer.setOrders(List.of(Order.of("a" + i), Order.of("b" + i)));
+                return customer;
+            });
+            sessionFactory.inTransaction(session -> customers.forEach(session::persist));
+
+            var exported = new ArrayList<Customer>();
+            ParallelExport.export(sessionFactory, Customer.class, 4, 7, exported::add);
+
+            assertEquals(50, exported.size());
+            for (var customer : exported) {
+                assertFalse(customer.getOrders() instanceof PersistentCollection);
+                var i = customer.getName().get().substring(1);
+                assertEquals(List.of("a" + i, "b" + i), customer.getOrders().map(o -> o.getLabel().get()).sorted());
+            }
+        }
+    }
+}
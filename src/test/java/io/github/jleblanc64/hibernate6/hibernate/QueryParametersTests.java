@@ -0,0 +1,91 @@
+package io.github.jleblanc64.hibernate6.hibernate;
+
+import io.github.jleblanc64.hibernate6.H2;
+import io.github.jleblanc64.hibernate6.entity.Customer;
+import io.github.jleblanc64.hibernate6.entity.Order;
+import io.vavr.collection.HashSet;
+import io.vavr.collection.List;
+import io.vavr.collection.Vector;
+import io.vavr.control.Option;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledInNativeImage;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+@DisabledInNativeImage
+public class QueryParametersTests {
+    private final java.util.List<String> sql = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void parameters() {
+        try (var sessionFactory = sessionFactory("queryParameters", true)) {
+            var ids = persist(sessionFactory);
+
+            sessionFactory.inTransaction(session -> {
+                var byIds = "select o.label from Order o where o.id in :ids order by o.id";
+                assertEquals(java.util.List.of("a", "b"), session.createQuery(byIds, String.class)
+                        .setParameter("ids", ids.take(2)).getResultList());
+                assertEquals(java.util.List.of("a", "b", "c"), session.createQuery(byIds, String.class)
+                        .setParameter("ids", HashSet.ofAll(ids.take(3))).getResultList());
+                assertEquals(java.util.List.of("c"), session.createQuery(byIds, String.class)
+                        .setParameter("ids", Vector.of(ids.get(2))).getResultList());
+
+                var byLabel = "select o.id from Order o where o.label = :label";
+                assertEquals(java.util.List.of(ids.head()), session.createQuery(byLabel, Long.class)
+                        .setParameter("label", Option.of("a")).getResultList());
+                assertEquals(0, session.createQuery(byLabel, Long.class)
+                        .setParameter("label", Option.none()).getResultList().size());
+            });
+        }
+    }
+
+    @Test
+    public void padding() {
+        // Hibernate pads the view of a Seq like a java.util.Collection
+        try (var sessionFactory = sessionFactory("queryParametersPadding", true)) {
+            var ids = persist(sessionFactory);
+            assertEquals(select(sessionFactory, ids.take(3)), select(sessionFactory, ids.take(4)));
+            assertEquals(4, select(sessionFactory, ids.take(3)).chars().filter(c -> c == '?').count());
+        }
+
+        try (var sessionFactory = sessionFactory("queryParametersNoPadding", false)) {
+            var ids = persist(sessionFactory);
+            assertNotEquals(select(sessionFactory, ids.take(3)), select(sessionFactory, ids.take(4)));
+        }
+    }
+
+    /**
+     * @return SQL of the select, after checking each id matched once
+     */
+    private String select(SessionFactory sessionFactory, List<Long> ids) {
+        sql.clear();
+        int count = sessionFactory.fromTransaction(session -> session.createQuery("select o from Order o where o.id in :ids", Order.class)
+                .setParameter("ids", ids).getResultList().size());
+        assertEquals(ids.size(), count);
+        return sql.get(0);
+    }
+
+    private List<Long> persist(SessionFactory sessionFactory) {
+        var customer = new Customer();
+        customer.setName(Option.of("c"));
+        customer.setOrders(List.of(Order.of("a"), Order.of("b"), Order.of("c"), Order.of("d"), Order.of("e")));
+        sessionFactory.inTransaction(session -> session.persist(customer));
+        return customer.getOrders().map(Order::getId);
+    }
+
+    private SessionFactory sessionFactory(String db, boolean padding) {
+        VavrHibernate6.override();
+        var conf = H2.configuration(db, Customer.class, Order.class);
+        conf.setProperty(AvailableSettings.IN_CLAUSE_PARAMETER_PADDING, String.valueOf(padding));
+        conf.setStatementInspector(s -> {
+            sql.add(s);
+            return s;
+        });
+        return conf.buildSessionFactory();
+    }
+}
@@ -0,0 +1,61 @@
+package io.github.jleblanc64.hibernate6.hibernate;
+
+import io.github.jleblanc64.hibernate6.H2;
+import io.github.jleblanc64.hibernate6.entity.Customer;
+import io.github.jleblanc64.hibernate6.entity.Order;
+import io.vavr.collection.List;
+import io.vavr.control.Option;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledInNativeImage;
+
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisabledInNativeImage
+public class ReadOnlyHydrationTests {
+    private final java.util.List<String> sql = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void readOnly() {
+        VavrHibernate6.override();
+        var conf = H2.configuration("readOnly", Customer.class, Order.class);
+        conf.setProperty(ReadOnlyHydration.SETTING, "true");
+        conf.setStatementInspector(s -> {
+            sql.add(s);
+            return s;
+        });
+
+        try (var sessionFactory = conf.buildSessionFactory()) {
+            var customer = new Customer();
+            customer.setName(Option.of("c"));
+            customer.setOrders(List.of(Order.of("a"), Order.of("b")));
+            sessionFactory.inTransaction(session -> session.persist(customer));
+
+            sql.clear();
+            sessionFactory.inTransaction(session -> {
+                session.setDefaultReadOnly(true);
+                var loaded = session.get(Customer.class, customer.getId());
+                assertEquals(2, loaded.getOrders().size());
+
+                var orders = Utils.getRefl(loaded, "orders");
+                assertFalse(orders instanceof PersistentCollection);
+                assertEquals(List.of("a", "b"), ((List<Order>) orders).map(o -> o.getLabel().get()));
+                assertTrue(((SessionImplementor) session).getPersistenceContextInternal().getCollectionEntries().isEmpty());
+            });
+            // the commit flush neither wraps the plain List again nor recreates the collection
+            assertTrue(sql.stream().allMatch(s -> s.toLowerCase(Locale.ROOT).startsWith("select")), sql::toString);
+
+            sessionFactory.inTransaction(session -> {
+                var loaded = session.get(Customer.class, customer.getId());
+                assertEquals(2, loaded.getOrders().size());
+                assertTrue(loaded.getOrders() instanceof PersistentCollection);
+            });
+        }
+    }
+}
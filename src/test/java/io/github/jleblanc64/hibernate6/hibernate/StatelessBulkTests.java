@@ -0,0 +1,70 @@
+package io.github.jleblanc64.hibernate6.hibernate;
+
+import io.github.jleblanc64.hibernate6.H2;
+import io.github.jleblanc64.hibernate6.entity.Customer;
+import io.github.jleblanc64.hibernate6.entity.Order;
+import io.vavr.collection.List;
+import io.vavr.control.Option;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledInNativeImage;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DisabledInNativeImage
+public class StatelessBulkTests {
+    private final java.util.List<String> sql = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void insertAndUpsert() {
+        VavrHibernate6.override();
+        var conf = H2.configuration("statelessBulk", Customer.class, Order.class);
+        conf.setProperty(AvailableSettings.STATEMENT_BATCH_SIZE, "50");
+        // called once per prepared statement, so once per batch
+        conf.setStatementInspector(s -> {
+            sql.add(s);
+            return s;
+        });
+
+        try (var sessionFactory = conf.buildSessionFactory()) {
+            var customers = List.range(0, 100).map(i -> {
+                var customer = new Customer();
+                customer.setName(Option.of("c" + i));
+                customer.setOrders(List.of(Order.of("a" + i), Order.of("b" + i)));
+                return customer;
+            });
+            sessionFactory.inStatelessTransaction(session -> StatelessBulk.insert(session, customers));
+            // the orders, the customers, then the customer_id of the orders: each statement stays in its batch,
+            // instead of 300 batches of one row when aggregates were written one after the other
+            assertEquals(java.util.List.of("insert into orders", "insert into Customer", "update orders"),
+                    sql.stream().filter(s -> !s.startsWith("select")).map(s -> s.replaceAll(" (\\(|set ).*", "")).collect(Collectors.toList()));
+
+            var first = customers.head();
+            var loaded = sessionFactory.fromSession(session -> {
+                var customer = session.get(Customer.class, first.getId());
+                return customer.getOrders().map(o -> o.getLabel().get());
+            });
+            assertEquals(List.of("a0", "b0"), loaded.sorted());
+            assertEquals(200L, count(sessionFactory, "select count(*) from Order"));
+
+            first.setName(Option.of("renamed"));
+            first.getOrders().head().setLabel(Option.of("z0"));
+            sessionFactory.inStatelessTransaction(session -> StatelessBulk.upsert(session, first));
+
+            var upserted = sessionFactory.fromSession(session -> {
+                var customer = session.get(Customer.class, first.getId());
+                return customer.getName().get() + ":" + customer.getOrders().map(o -> o.getLabel().get()).sorted().mkString(",");
+            });
+            assertEquals("renamed:b0,z0", upserted);
+            assertEquals(200L, count(sessionFactory, "select count(*) from Order"));
+        }
+    }
+
+    private static long count(SessionFactory sessionFactory, String hql) {
+        return sessionFactory.fromSession(session -> session.createSelectionQuery(hql, Long.class).getSingleResult());
+    }
+}
@@ -0,0 +1,302 @@
+package io.github.jleblanc64.hibernate6.hibernate;
+
+import io.github.jleblanc64.hibernate6.H2;
+import io.github.jleblanc64.hibernate6.entity.*;
+import io.vavr.collection.List;
+import io.vavr.control.Option;
+import org.hibernate.Hibernate;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledInNativeImage;
+
+import java.util.Locale;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Insert, update and delete statements written by the flush of each operation on a loaded 3 element Vavr List,
+ * per mapping style, with {@link ListReplacement} unless stated otherwise. Selects are left out: they depend on fetch plans, not on the bag.
+ * <p>
+ * For a lazy Option to-one, selects are counted too: the Option wraps the proxy without initializing it.
+ */
+@DisabledInNativeImage
+public class StatementCountTests {
+    private final Statements statements = new Statements();
+
+    @Test
+    public void unidirectionalOneToMany() {
+        try (var sessionFactory = sessionFactory("statementsUnidirectional")) {
+            var albums = new Operations<>(sessionFactory, Album.class, StatementCountTests::album, Album::getTracks);
+
+            assertEquals("", albums.writes(album -> {
+            }));
+            assertEquals("insert=1 update=1", albums.writes(album -> album.setTracks(album.getTracks().append(Track.of("d")))));
+            // orphan removal: the orphan is deleted, its foreign key set to null
+            assertEquals("delete=1 update=1", albums.writes(album -> album.setTracks(album.getTracks().filter(t -> !isTitled(t, "b")))));
+            assertEquals("delete=1 insert=1 update=2", albums.writes(album -> album.setTracks(album.getTracks().map(t -> isTitled(t, "b") ? Track.of("d") : t))));
+            assertEquals("", albums.writes(album -> album.setTracks(album.getTracks().reverse())));
+            assertEquals("delete=3 update=1", albums.writes(album -> album.setTracks(List.empty())));
+            assertEquals("insert=1 update=1", albums.merged(album -> album.setTracks(album.getTracks().append(Track.of("d")))));
+        }
+    }
+
+    @Test
+    public void bidirectionalOneToMany() {
+        try (var sessionFactory = sessionFactory("statementsBidirectional")) {
+            var posts = new Operations<>(sessionFactory, Post.class, StatementCountTests::post, Post::getComments);
+
+            assertEquals("", posts.writes(post -> {
+            }));
+            assertEquals("insert=1", posts.writes(post -> post.setComments(post.getComments().append(Comment.of(post, "d")))));
+            // inverse side: no foreign key update, only the orphan delete
+            assertEquals("delete=1", posts.writes(post -> post.setComments(post.getComments().filter(c -> !isText(c, "b")))));
+            assertEquals("delete=1 insert=1", posts.writes(post -> post.setComments(post.getComments().map(c -> isText(c, "b") ? Comment.of(post, "d") : c))));
+            assertEquals("", posts.writes(post -> post.setComments(post.getComments().reverse())));
+            assertEquals("delete=3", posts.writes(post -> post.setComments(List.empty())));
+            assertEquals("insert=1", posts.merged(post -> post.setComments(post.getComments().append(Comment.of(post, "d")))));
+        }
+    }
+
+    @Test
+    public void elementCollection() {
+        try (var sessionFactory = sessionFactory("statementsElementCollection")) {
+            var recipes = new Operations<>(sessionFactory, Recipe.class, StatementCountTests::recipe, Recipe::getSteps);
+
+            assertEquals("", recipes.writes(recipe -> {
+            }));
+            // a bag of values has no row identity: any change deletes all rows and inserts the new ones
+            assertEquals("delete=1 insert=4", recipes.writes(recipe -> recipe.setSteps(recipe.getSteps().append("d"))));
+            assertEquals("delete=1 insert=2", recipes.writes(recipe -> recipe.setSteps(recipe.getSteps().remove("b"))));
+            assertEquals("delete=1 insert=3", recipes.writes(recipe -> recipe.setSteps(recipe.getSteps().replace("b", "d"))));
+            assertEquals("", recipes.writes(recipe -> recipe.setSteps(recipe.getSteps().reverse())));
+            assertEquals("delete=1", recipes.writes(recipe -> recipe.setSteps(List.empty())));
+            assertEquals("delete=1 insert=4", recipes.merged(recipe -> recipe.setSteps(recipe.getSteps().append("d"))));
+        }
+    }
+
+    // without ListReplacement, a replaced List dereferences its bag
+    @Test
+    public void withoutListReplacement() {
+        try (var sessionFactory = sessionFactory("statementsWithoutListReplacement", false)) {
+            var recipes = new Operations<>(sessionFactory, Recipe.class, StatementCountTests::recipe, Recipe::getSteps);
+            assertEquals("", recipes.writes(recipe -> {
+            }));
+            assertEquals("delete=1 insert=4", recipes.writes(recipe -> recipe.setSteps(recipe.getSteps().append("d"))));
+            // recreated, even when only reordered
+            assertEquals("delete=1 insert=3", recipes.writes(recipe -> recipe.setSteps(recipe.getSteps().reverse())));
+            assertEquals("delete=1 insert=4", recipes.merged(recipe -> recipe.setSteps(recipe.getSteps().append("d"))));
+
+            var albums = new Operations<>(sessionFactory, Album.class, StatementCountTests::album, Album::getTracks);
+            // merge moves the elements into the managed bag, a flush finding a replaced bag with orphans throws
+            assertEquals("insert=1 update=1", albums.merged(album -> album.setTracks(album.getTracks().append(Track.of("d")))));
+            assertThrows(HibernateException.class, () -> albums.writes(album -> album.setTracks(album.getTracks().append(Track.of("d")))));
+        }
+    }
+
+    @Test
+    public void lazyOptionManyToOne() {
+        try (var sessionFactory = sessionFactory("statementsManyToOne")) {
+            var customer = customer("c");
+            var other = customer("d");
+            sessionFactory.inTransaction(session -> {
+                session.persist(customer);
+                session.persist(other);
+            });
+
+            var invoices = new Invoices(sessionFactory, customer);
+            assertEquals("", invoices.writes((session, invoice) -> {
+            }));
+            assertEquals("", invoices.writes((session, invoice) -> {
+                // id of the proxy, JPA and DetachedGraph load states
+                assertEquals(customer.getId(), invoice.getCustomer().map(Customer::getId).get());
+                assertFalse(sessionFactory.getPersistenceUnitUtil().isLoaded(invoice, "customer"));
+                assertFalse(DetachedGraph.isLoaded(invoice.getCustomer()));
+            }));
+            assertEquals("update=1", invoices.writes((session, invoice) -> invoice.setNumber(Option.of("b"))));
+            // dirty checking compares identifiers: another instance of the same customer is no change, unless the
+            // enhanced setter tracked it as a change
+            var sameCustomer = Boolean.getBoolean("vavr.enhanced") ? "update=1" : "";
+            assertEquals(sameCustomer, invoices.writes((session, invoice) -> invoice.setCustomer(Option.of(detached(customer)))));
+            assertEquals("update=1", invoices.writes((session, invoice) -> invoice.setCustomer(Option.of(session.getReference(Customer.class, other.getId())))));
+            assertEquals("update=1", invoices.writes((session, invoice) -> invoice.setCustomer(Option.none())));
+        }
+    }
+
+    private SessionFactory sessionFactory(String db) {
+        return sessionFactory(db, true);
+    }
+
+    private SessionFactory sessionFactory(String db, boolean listReplacement) {
+        VavrHibernate6.override();
+        var conf = H2.configuration(db, Album.class, Track.class, Post.class, Comment.class, Recipe.class,
+                Invoice.class, Customer.class, Order.class);
+        conf.setProperty(ListReplacement.SETTING, String.valueOf(listReplacement));
+        conf.setStatementInspector(statements);
+        return conf.buildSessionFactory();
+    }
+
+    private static Album album() {
+        var album = new Album();
+        album.setTracks(List.of(Track.of("a"), Track.of("b"), Track.of("c")));
+        return album;
+    }
+
+    private static Post post() {
+        var post = new Post();
+        post.setComments(List.of(Comment.of(post, "a"), Comment.of(post, "b"), Comment.of(post, "c")));
+        return post;
+    }
+
+    private static Recipe recipe() {
+        var recipe = new Recipe();
+        recipe.setSteps(List.of("a", "b", "c"));
+        return recipe;
+    }
+
+    private static Customer customer(String name) {
+        var customer = new Customer();
+        customer.setName(Option.of(name));
+        customer.setOrders(List.empty());
+        return customer;
+    }
+
+    private static Customer detached(Customer customer) {
+        var copy = new Customer();
+        copy.setId(customer.getId());
+        return copy;
+    }
+
+    private static boolean isTitled(Track track, String title) {
+        return track.getTitle().contains(title);
+    }
+
+    private static boolean isText(Comment comment, String text) {
+        return comment.getText().contains(text);
+    }
+
+    private class Operations<T> {
+        private final SessionFactory sessionFactory;
+        private final Class<T> type;
+        private final Supplier<T> owner;
+        private final Function<T, List<?>> collection;
+
+        Operations(SessionFactory sessionFactory, Class<T> type, Supplier<T> owner, Function<T, List<?>> collection) {
+            this.sessionFactory = sessionFactory;
+            this.type = type;
+            this.owner = owner;
+            this.collection = collection;
+        }
+
+        /**
+         * @return writes of the flush, after the operation on the owner loaded in the same session
+         */
+        String writes(Consumer<T> operation) {
+            var id = persisted();
+            statements.clear();
+            sessionFactory.inTransaction(session -> operation.accept(session.get(type, id)));
+            return statements.writes();
+        }
+
+        /**
+         * @return writes of the merge of the owner, after the operation on the detached owner
+         */
+        String merged(Consumer<T> operation) {
+            var id = persisted();
+            var detached = sessionFactory.fromTransaction(session -> {
+                var loaded = session.get(type, id);
+                collection.apply(loaded).size();
+                return loaded;
+            });
+
+            operation.accept(detached);
+            statements.clear();
+            sessionFactory.inTransaction(session -> session.merge(detached));
+            return statements.writes();
+        }
+
+        private Object persisted() {
+            var entity = owner.get();
+            sessionFactory.inTransaction(session -> session.persist(entity));
+            return sessionFactory.getPersistenceUnitUtil().getIdentifier(entity);
+        }
+    }
+
+    private class Invoices {
+        private final SessionFactory sessionFactory;
+        private final Customer customer;
+
+        Invoices(SessionFactory sessionFactory, Customer customer) {
+            this.sessionFactory = sessionFactory;
+            this.customer = customer;
+        }
+
+        /**
+         * @return writes of the flush, after the operation on an invoice loaded in the same session. Only the
+         * invoice is selected, and the proxy of its customer is never initialized.
+         */
+        String writes(BiConsumer<Session, Invoice> operation) {
+            var invoice = Invoice.of(customer, "a");
+            sessionFactory.inTransaction(session -> session.persist(invoice));
+
+            statements.clear();
+            sessionFactory.inTransaction(session -> {
+                var loaded = session.get(Invoice.class, invoice.getId());
+                var proxy = loaded.getCustomer().get();
+                operation.accept(session, loaded);
+                session.flush();
+                assertFalse(Hibernate.isInitialized(proxy));
+            });
+
+            assertEquals(1, statements.count("select"));
+            return statements.writes();
+        }
+    }
+
+    private static class Statements implements StatementInspector {
+        private final java.util.List<String> sql = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            this.sql.add(sql);
+            return sql;
+        }
+
+        void clear() {
+            sql.clear();
+        }
+
+        /**
+         * @return count of each kind of write statement, e.g. "delete=1 insert=1"
+         */
+        String writes() {
+            var counts = new TreeMap<String, Integer>();
+            for (var statement : sql) {
+                var kind = kind(statement);
+                if (kind.equals("insert") || kind.equals("update") || kind.equals("delete"))
+                    counts.merge(kind, 1, Integer::sum);
+            }
+
+            return counts.entrySet().stream().map(e -> e.getKey() + "=" + e.getValue()).collect(Collectors.joining(" "));
+        }
+
+        long count(String kind) {
+            return sql.stream().filter(statement -> kind(statement).equals(kind)).count();
+        }
+
+        private static String kind(String statement) {
+            return statement.trim().split("\\s+", 2)[0].toLowerCase(Locale.ROOT);
+        }
+    }
+}
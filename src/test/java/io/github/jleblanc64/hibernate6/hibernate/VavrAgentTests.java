@@ -0,0 +1,100 @@
+package io.github.jleblanc64.hibernate6.hibernate;
+
+import io.github.jleblanc64.hibernate6.H2;
+import io.github.jleblanc64.hibernate6.entity.Customer;
+import io.github.jleblanc64.hibernate6.entity.Order;
+import io.vavr.collection.List;
+import io.vavr.control.Option;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledInNativeImage;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisabledInNativeImage
+public class VavrAgentTests {
+    @Test
+    public void premain(@TempDir Path dir) throws Exception {
+        // the agent entries of the library jar manifest, VavrAgent itself is loaded from the class path
+        var manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().putValue("Premain-Class", VavrAgent.class.getName());
+        manifest.getMainAttributes().putValue("Can-Redefine-Classes", "true");
+        manifest.getMainAttributes().putValue("Can-Retransform-Classes", "true");
+        var agent = dir.resolve("agent.jar");
+        try (var jar = new JarOutputStream(new FileOutputStream(agent.toFile()), manifest)) {
+            // manifest only
+        }
+
+        var withAgent = run("-javaagent:" + agent);
+        assertEquals(0, withAgent.exitCode, withAgent.output);
+        assertTrue(withAgent.output.contains("hooks installed"), withAgent.output);
+
+        // without the agent, the attach the hooks would need is refused
+        var withoutAgent = run(null);
+        assertNotEquals(0, withoutAgent.exitCode, withoutAgent.output);
+        assertTrue(withoutAgent.output.contains("attach"), withoutAgent.output);
+    }
+
+    private static Result run(String agent) throws IOException, InterruptedException {
+        var command = new ArrayList<String>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-XX:+DisableAttachMechanism");
+        if (agent != null)
+            command.add(agent);
+
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Main.class.getName());
+
+        var process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        var output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertTrue(process.waitFor(2, TimeUnit.MINUTES));
+        return new Result(process.exitValue(), output);
+    }
+
+    private static class Result {
+        final int exitCode;
+        final String output;
+
+        Result(int exitCode, String output) {
+            this.exitCode = exitCode;
+            this.output = output;
+        }
+    }
+
+    // installs the hooks, then round trips an Option and a List attribute through Hibernate
+    public static class Main {
+        public static void main(String[] args) {
+            VavrHibernate6.override();
+            try (var sessionFactory = H2.sessionFactory("agent", Customer.class, Order.class)) {
+                var customer = new Customer();
+                customer.setName(Option.of("c"));
+                customer.setOrders(List.of(Order.of("a")));
+                sessionFactory.inTransaction(session -> session.persist(customer));
+
+                var loaded = sessionFactory.fromTransaction(session -> {
+                    var found = session.get(Customer.class, customer.getId());
+                    found.getOrders().size();
+                    return found;
+                });
+                if (!loaded.getName().equals(Option.of("c")) || loaded.getOrders().size() != 1)
+                    System.exit(2);
+            }
+
+            System.out.println("hooks installed");
+        }
+    }
+}
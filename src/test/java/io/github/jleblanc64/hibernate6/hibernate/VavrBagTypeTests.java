@@ -0,0 +1,79 @@
+package io.github.jleblanc64.hibernate6.hibernate;
+
+import io.github.jleblanc64.hibernate6.H2;
+import io.github.jleblanc64.hibernate6.entity.Customer;
+import io.github.jleblanc64.hibernate6.entity.Order;
+import io.github.jleblanc64.hibernate6.entity.Shipment;
+import io.github.jleblanc64.hibernate6.impl.MetaListImpl;
+import io.github.jleblanc64.hibernate6.impl.PersistentBagImpl;
+import io.vavr.collection.List;
+import org.hibernate.collection.internal.CustomCollectionTypeSemantics;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.metamodel.MappingMetamodel;
+import org.hibernate.type.CollectionType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledInNativeImage;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+@DisabledInNativeImage
+public class VavrBagTypeTests {
+    @Test
+    public void bagType() {
+        var metaList = new MetaListImpl();
+        var bagType = new VavrBagType("role", null, metaList);
+
+        var wrapped = bagType.wrap(null, List.of("a", "b"));
+        assertInstanceOf(PersistentBagImpl.class, wrapped);
+        assertEquals(List.of("a", "b"), List.ofAll((PersistentBagImpl) wrapped));
+
+        // plain java.util.List values keep the BagType behavior
+        assertFalse(bagType.wrap(null, new ArrayList<>(java.util.List.of("a"))) instanceof PersistentBagImpl);
+
+        assertEquals(java.util.List.of("a", "b"), toList(bagType.getElementsIterator(List.of("a", "b"))));
+        assertEquals(java.util.List.of("a", "b"), toList(bagType.getElementsIterator(wrapped)));
+        assertFalse(bagType.getElementsIterator(metaList.bag().unloaded("role")).hasNext());
+    }
+
+    @Test
+    public void roles() {
+        VavrHibernate6.override();
+        try (var sessionFactory = H2.sessionFactory("vavrBagTypeRoles", Customer.class, Order.class, Shipment.class)) {
+            var metamodel = sessionFactory.unwrap(SessionFactoryImplementor.class).getMappingMetamodel();
+            assertInstanceOf(VavrBagType.class, collectionType(metamodel, Customer.class.getName() + ".orders"));
+
+            // owned by an embeddable
+            assertInstanceOf(VavrBagType.class, collectionType(metamodel, Shipment.class.getName() + ".route.stops"));
+
+            var shipment = new Shipment();
+            shipment.setRoute(new Shipment.Route());
+            shipment.getRoute().setStops(List.of("a", "b"));
+            sessionFactory.inTransaction(session -> session.persist(shipment));
+
+            sessionFactory.inTransaction(session -> {
+                var loaded = session.get(Shipment.class, shipment.getId());
+                assertEquals(List.of("a", "b"), loaded.getRoute().getStops());
+                loaded.getRoute().setStops(loaded.getRoute().getStops().append("c"));
+            });
+
+            sessionFactory.inTransaction(session ->
+                    assertEquals(List.of("a", "b", "c"), session.get(Shipment.class, shipment.getId()).getRoute().getStops()));
+        }
+    }
+
+    private static CollectionType collectionType(MappingMetamodel metamodel, String role) {
+        // the mapping type keeps the standard bag semantics, the persister wraps the custom type
+        var semantics = metamodel.getCollectionDescriptor(role).getCollectionSemantics();
+        return assertInstanceOf(CustomCollectionTypeSemantics.class, semantics).getCollectionType();
+    }
+
+    private static java.util.List<Object> toList(java.util.Iterator<?> iterator) {
+        var list = new ArrayList<Object>();
+        iterator.forEachRemaining(list::add);
+        return list;
+    }
+}
@@ -0,0 +1,54 @@
+package io.github.jleblanc64.hibernate6.hibernate;
+
+import io.github.jleblanc64.hibernate6.impl.MetaListImpl;
+import io.github.jleblanc64.hibernate6.impl.MetaOptionImpl;
+import io.vavr.collection.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class VavrBindingsTests {
+    @Test
+    public void lastBindingWins() {
+        var javaList = java.util.List.of(1);
+        var first = VavrBindings.bind(new MetaListImpl(), new MetaOptionImpl());
+        var second = VavrBindings.bind(new AppendingMetaList(), new MetaOptionImpl());
+        assertEquals(List.of(1, 0), VavrBindings.metaList().fromJava(javaList));
+
+        second.close();
+        assertEquals(List.of(1), VavrBindings.metaList().fromJava(javaList));
+
+        first.close();
+        assertEquals(List.of(1), VavrBindings.metaList().fromJava(javaList));
+    }
+
+    @Test
+    public void perClassLoader() {
+        var javaList = java.util.List.of(1);
+        var thread = Thread.currentThread();
+        var loader = thread.getContextClassLoader();
+        var other = new ClassLoader(loader) {
+        };
+
+        var first = VavrBindings.bind(new AppendingMetaList(), new MetaOptionImpl());
+        thread.setContextClassLoader(other);
+        var second = VavrBindings.bind(new MetaListImpl(), new MetaOptionImpl());
+        try {
+            assertEquals(List.of(1), VavrBindings.metaList().fromJava(javaList));
+
+            thread.setContextClassLoader(loader);
+            assertEquals(List.of(1, 0), VavrBindings.metaList().fromJava(javaList));
+        } finally {
+            thread.setContextClassLoader(loader);
+            second.close();
+            first.close();
+        }
+    }
+
+    static class AppendingMetaList extends MetaListImpl {
+        @Override
+        public List fromJava(java.util.List l) {
+            return List.ofAll(l).append(0);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package io.github.jleblanc64.hibernate6.jfr;
+
+import io.github.jleblanc64.hibernate6.H2;
+import io.github.jleblanc64.hibernate6.entity.Customer;
+import io.github.jleblanc64.hibernate6.entity.Order;
+import io.github.jleblanc64.hibernate6.hibernate.VavrHibernate6;
+import io.vavr.collection.List;
+import io.vavr.control.Option;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledInNativeImage;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisabledInNativeImage
+public class EventTests {
+    @Test
+    public void events() throws Exception {
+        VavrHibernate6.override();
+        assertFalse(HookEvent.enabled());
+
+        java.util.List<RecordedEvent> events;
+        try (var sessionFactory = H2.sessionFactory("jfrEvents", Customer.class, Order.class);
+             var recording = new Recording()) {
+            var customer = new Customer();
+            customer.setName(Option.of("c"));
+            customer.setOrders(List.of(Order.of("a"), Order.of("b")));
+            sessionFactory.inTransaction(session -> session.persist(customer));
+
+            recording.enable(HookEvent.class).withoutThreshold();
+            recording.enable(CollectionEvent.class).withoutThreshold();
+            recording.start();
+            assertTrue(HookEvent.enabled());
+
+            sessionFactory.inTransaction(session -> session.get(Customer.class, customer.getId()).getOrders().size());
+            readJson("{}");
+            recording.stop();
+
+            var file = Files.createTempFile("events", ".jfr");
+            try {
+                recording.dump(file);
+                events = RecordingFile.readAllEvents(file);
+            } finally {
+                Files.delete(file);
+            }
+        }
+
+        var hooks = events.stream().filter(e -> e.getEventType().getName().equals("io.github.jleblanc64.hibernate6.Hook"))
+                .map(e -> e.getString("hook")).collect(Collectors.toSet());
+        assertTrue(hooks.contains("SetterFieldImpl.set"));
+        assertTrue(hooks.contains("AbstractJackson2HttpMessageConverter.readJavaType(List)"));
+        assertTrue(hooks.contains("AbstractJackson2HttpMessageConverter.readJavaType(Option)"));
+
+        var loaded = events.stream().filter(e -> e.getEventType().getName().equals("io.github.jleblanc64.hibernate6.Collection"))
+                .filter(e -> e.getString("operation").equals("injectLoadedState")).collect(Collectors.toList());
+        assertEquals(1, loaded.size());
+        assertEquals(Customer.class.getName() + ".orders", loaded.get(0).getString("role"));
+        assertEquals(2, loaded.get(0).getInt("elementCount"));
+    }
+
+    private static void readJson(String json) throws Exception {
+        var customer = (Customer) new MappingJackson2HttpMessageConverter().read(Customer.class, new HttpInputMessage() {
+            @Override
+            public InputStream getBody() {
+                return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public HttpHeaders getHeaders() {
+                return new HttpHeaders();
+            }
+        });
+        assertEquals(Option.none(), customer.getName());
+    }
+}
@@ -0,0 +1,77 @@
+package io.github.jleblanc64.hibernate6.spring;
+
+import io.github.jleblanc64.hibernate6.impl.MetaOptionImpl;
+import io.vavr.control.Option;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.MethodParameter;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OptionArgumentResolverTests {
+    @Test
+    public void wrap() throws Exception {
+        var named = new NamedResolver(null);
+        var other = new OtherResolver();
+        var resolvers = OptionArgumentResolver.wrap(java.util.List.of(other, named), NamedResolver.class, new MetaOptionImpl());
+
+        assertEquals(3, resolvers.size());
+        assertSame(other, resolvers.get(0));
+        assertInstanceOf(OptionArgumentResolver.class, resolvers.get(1));
+        assertSame(named, resolvers.get(2));
+
+        var resolver = resolvers.get(1);
+        assertTrue(resolver.supportsParameter(parameter(0)));
+        assertFalse(resolver.supportsParameter(parameter(1)));
+
+        assertEquals(Option.of("a"), new OptionArgumentResolver(new MetaOptionImpl(), new NamedResolver("a")).resolveArgument(parameter(0), null, null, null));
+        assertEquals(Option.none(), resolver.resolveArgument(parameter(0), null, null, null));
+    }
+
+    private static MethodParameter parameter(int index) throws NoSuchMethodException {
+        return new MethodParameter(OptionArgumentResolverTests.class.getDeclaredMethod("handler", Option.class, String.class), index);
+    }
+
+    @SuppressWarnings("unused")
+    private void handler(Option<String> name, String plain) {
+    }
+
+    static class NamedResolver implements HandlerMethodArgumentResolver {
+        private final Object value;
+
+        NamedResolver(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean supportsParameter(MethodParameter parameter) {
+            return true;
+        }
+
+        @Override
+        public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer, NativeWebRequest webRequest,
+                                      WebDataBinderFactory binderFactory) {
+            return value;
+        }
+    }
+
+    static class OtherResolver implements HandlerMethodArgumentResolver {
+        @Override
+        public boolean supportsParameter(MethodParameter parameter) {
+            return true;
+        }
+
+        @Override
+        public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer, NativeWebRequest webRequest,
+                                      WebDataBinderFactory binderFactory) {
+            return null;
+        }
+    }
+}
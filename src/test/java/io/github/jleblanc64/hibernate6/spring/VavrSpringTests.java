@@ -0,0 +1,53 @@
+package io.github.jleblanc64.hibernate6.spring;
+
+import io.github.jleblanc64.hibernate6.entity.Customer;
+import io.github.jleblanc64.hibernate6.hibernate.VavrHibernate6;
+import io.vavr.collection.List;
+import io.vavr.control.Option;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledInNativeImage;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.SimpleTypeConverter;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.core.convert.support.DefaultConversionService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DisabledInNativeImage
+public class VavrSpringTests {
+    @BeforeAll
+    public static void override() {
+        VavrHibernate6.override();
+    }
+
+    @Test
+    public void converters() {
+        var conversionService = new DefaultConversionService();
+        var optionOfInteger = new TypeDescriptor(ResolvableType.forClassWithGenerics(Option.class, Integer.class), null, null);
+
+        assertEquals(List.of("a", "b"), conversionService.convert(java.util.List.of("a", "b"), List.class));
+        assertEquals(Option.of(1), conversionService.convert("1", TypeDescriptor.valueOf(String.class), optionOfInteger));
+        assertEquals(Option.none(), conversionService.convert(null, TypeDescriptor.valueOf(String.class), optionOfInteger));
+
+        // the defaults are left as they are
+        assertEquals(1, conversionService.convert("1", Integer.class));
+        assertEquals(java.util.List.of("a", "b"), conversionService.convert("a,b", java.util.List.class));
+    }
+
+    @Test
+    public void beanWrapper() {
+        // BeanWrapper and @Value use the converters through a ConversionService
+        var customer = new Customer();
+        var wrapper = new BeanWrapperImpl(customer);
+        wrapper.setConversionService(new DefaultConversionService());
+        wrapper.setPropertyValue("name", "a");
+        assertEquals(Option.of("a"), customer.getName());
+
+        var converter = new SimpleTypeConverter();
+        converter.setConversionService(new DefaultConversionService());
+        assertEquals(Option.of("b"), converter.convertIfNecessary("b", Option.class));
+        assertEquals(Option.of("c"), converter.convertIfNecessary(Option.of("c"), Option.class));
+    }
+}